@@ -91,7 +91,12 @@ import org.teavm.flavour.expr.type.TypeVar;
 import org.teavm.flavour.expr.type.ValueType;
 import org.teavm.flavour.expr.type.ValueTypeFormatter;
 import org.teavm.flavour.expr.type.Variance;
+import org.teavm.flavour.expr.type.meta.AnnotationDescriber;
+import org.teavm.flavour.expr.type.meta.AnnotationList;
+import org.teavm.flavour.expr.type.meta.AnnotationString;
+import org.teavm.flavour.expr.type.meta.AnnotationValue;
 import org.teavm.flavour.expr.type.meta.ClassDescriber;
+import org.teavm.flavour.expr.type.meta.MethodDescriber;
 
 class CompilerVisitor implements ExprVisitor<TypedPlan> {
     private GenericTypeNavigator navigator;
@@ -494,6 +499,7 @@ class CompilerVisitor implements ExprVisitor<TypedPlan> {
             convertedArguments = convertVarArgs(convertedArguments, argTypes);
         }
 
+        checkMemo(expr, method.getDescriber());
         Plan plan = new InvocationPlan(className, methodName, desc, instance != null ? instance.plan : null,
                 convertedArguments);
         return planWithLocation(plan, returnType, expr);
@@ -616,6 +622,7 @@ class CompilerVisitor implements ExprVisitor<TypedPlan> {
             GenericMethod getter = findGetter(classes, propertyName);
             if (getter != null) {
                 if (isStatic == getter.getDescriber().isStatic()) {
+                    checkMemo(expr, getter.getDescriber());
                     String desc = "()" + typeToString(getter.getDescriber().getRawReturnType());
                     InvocationPlan plan = new InvocationPlan(getter.getDescriber().getOwner().getName(),
                             getter.getDescriber().getName(), desc, instance != null ? instance.plan : null);
@@ -844,6 +851,12 @@ class CompilerVisitor implements ExprVisitor<TypedPlan> {
                     owner, fieldName, desc, valuePlan.getPlan()), voidType(), expr);
         }
 
+        GenericMethod getter = findGetter(classes, name);
+        if (getter != null && getter.getDescriber().getAnnotation(Memo.class.getName()) != null) {
+            error(expr, "Property " + name + " is memoized and can't be assigned");
+            return planWithLocation(new ThisPlan(), voidType(), expr);
+        }
+
         GenericMethod setter = findSetter(classes, name, valuePlan.getType());
         if (setter != null) {
             String owner = setter.getDescriber().getOwner().getName();
@@ -857,6 +870,31 @@ class CompilerVisitor implements ExprVisitor<TypedPlan> {
         return planWithLocation(new ThisPlan(), voidType(), expr);
     }
 
+    private void checkMemo(Expr expr, MethodDescriber method) {
+        AnnotationDescriber memo = method.getAnnotation(Memo.class.getName());
+        if (memo == null) {
+            return;
+        }
+        if (method.isStatic() || method.getRawParameterTypes().length > 0) {
+            error(expr, "Memoized method " + method.getName() + " should be an instance method without parameters");
+            return;
+        }
+
+        AnnotationValue dependsOn = memo.getValue("dependsOn");
+        if (!(dependsOn instanceof AnnotationList)) {
+            return;
+        }
+        GenericClass owner = navigator.getGenericClass(method.getOwner().getName());
+        Collection<GenericClass> classes = Collections.singletonList(owner);
+        for (AnnotationValue dependency : ((AnnotationList) dependsOn).value) {
+            String name = ((AnnotationString) dependency).value;
+            if (findField(classes, name) == null && findGetter(classes, name) == null
+                    && navigator.getMethod(owner, name) == null) {
+                error(expr, "Dependency " + name + " of memoized method " + method.getName() + " was not found");
+            }
+        }
+    }
+
     private GenericField findField(Collection<GenericClass> classes, String name) {
         for (GenericClass cls : classes) {
             GenericField field = navigator.getField(cls, name);
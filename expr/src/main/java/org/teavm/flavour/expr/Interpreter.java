@@ -23,11 +23,25 @@ public class Interpreter {
     private Map<String, Object> variables = new HashMap<>();
     private Plan plan;
 
+    public Interpreter() {
+    }
+
     public Interpreter(Plan plan) {
         this.plan = plan;
     }
 
     public Object interpret() {
+        if (plan == null) {
+            throw new IllegalStateException("Interpreter was created without a plan");
+        }
+        return interpret(plan);
+    }
+
+    /**
+     * <p>Evaluates the given plan against the variables of this interpreter, so that many expressions
+     * can share one variable scope.</p>
+     */
+    public Object interpret(Plan plan) {
         InterpreterVisitor visitor = new InterpreterVisitor(variables);
         plan.acceptVisitor(visitor);
         return visitor.value;
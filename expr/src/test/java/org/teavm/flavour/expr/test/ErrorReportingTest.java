@@ -227,6 +227,14 @@ public class ErrorReportingTest extends BaseEvaluatorTest {
         assertThat(d.getEnd(), is(32));
     }
 
+    @Test
+    public void reportsAssignmentToMemoizedProperty() {
+        Diagnostic d = parseExpr(ObjectComputation.class, "bean.summary = stringValue").get(0);
+        assertThat(d.getMessage(), is("Property summary is memoized and can't be assigned"));
+        assertThat(d.getStart(), is(0));
+        assertThat(d.getEnd(), is(26));
+    }
+
     private List<Diagnostic> parseExpr(Class<?> cls, String str) {
         EvaluatorBuilder builder = new InterpretingEvaluatorBuilder()
                 .importPackage("java.lang")
@@ -15,6 +15,8 @@
  */
 package org.teavm.flavour.expr.test;
 
+import org.teavm.flavour.expr.Memo;
+
 public class TestBean {
     private String foo;
     public int bar;
@@ -26,4 +28,13 @@ public class TestBean {
     public void setFoo(String foo) {
         this.foo = foo;
     }
+
+    @Memo(dependsOn = "foo")
+    public String getSummary() {
+        return foo;
+    }
+
+    public void setSummary(String summary) {
+        this.foo = summary;
+    }
 }
@@ -16,11 +16,18 @@
 package org.teavm.flavour.components.attributes;
 
 import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 import org.teavm.flavour.templates.BindAttributeComponent;
 import org.teavm.flavour.templates.BindContent;
 import org.teavm.flavour.templates.BindElementName;
+import org.teavm.flavour.templates.DomWriteQueue;
 import org.teavm.flavour.templates.ModifierTarget;
+import org.teavm.flavour.templates.PrimitiveValue;
+import org.teavm.flavour.templates.RenderInstrumentation;
 import org.teavm.flavour.templates.Renderable;
 import org.teavm.jso.dom.html.HTMLElement;
 
@@ -29,6 +36,7 @@ public class ComputedAttribute implements Renderable {
     private HTMLElement element;
     private Supplier<?> value;
     private Object cachedValue;
+    private final PrimitiveValue primitiveValue = new PrimitiveValue();
     private String name;
 
     public ComputedAttribute(ModifierTarget target) {
@@ -40,6 +48,26 @@ public class ComputedAttribute implements Renderable {
         this.value = value;
     }
 
+    @BindContent
+    public void setValue(IntSupplier intValue) {
+        primitiveValue.set(intValue);
+    }
+
+    @BindContent
+    public void setValue(LongSupplier longValue) {
+        primitiveValue.set(longValue);
+    }
+
+    @BindContent
+    public void setValue(DoubleSupplier doubleValue) {
+        primitiveValue.set(doubleValue);
+    }
+
+    @BindContent
+    public void setValue(BooleanSupplier booleanValue) {
+        primitiveValue.set(booleanValue);
+    }
+
     @BindElementName
     public void setName(String name) {
         this.name = name;
@@ -47,15 +75,26 @@ public class ComputedAttribute implements Renderable {
 
     @Override
     public void render() {
-        Object newValue = value.get();
-        if (!Objects.equals(newValue, cachedValue)) {
-            cachedValue = newValue;
-            element.setAttribute(name, String.valueOf(newValue));
+        if (primitiveValue.isBound()) {
+            if (primitiveValue.update()) {
+                setAttribute(primitiveValue.getText());
+            }
+        } else {
+            Object newValue = value.get();
+            if (!Objects.equals(newValue, cachedValue)) {
+                cachedValue = newValue;
+                setAttribute(String.valueOf(newValue));
+            }
         }
     }
 
+    private void setAttribute(String value) {
+        DomWriteQueue.setAttribute(element, name, value);
+        RenderInstrumentation.recordDomMutation();
+    }
+
     @Override
     public void destroy() {
-        element.removeAttribute(name);
+        DomWriteQueue.removeAttribute(element, name);
     }
 }
@@ -0,0 +1,82 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.components.events;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * <p>Runs handlers of async event binders on a small set of long-living threads, so that a burst of events
+ * does not start a thread per event.</p>
+ */
+final class AsyncEventQueue {
+    private static final int MAX_WORKERS = 4;
+    private static final Object lock = new Object();
+    private static Deque<Runnable> tasks = new ArrayDeque<>();
+    private static int workerCount;
+    private static int idleWorkerCount;
+
+    private AsyncEventQueue() {
+    }
+
+    static void submit(Runnable task) {
+        synchronized (lock) {
+            tasks.add(task);
+            if (idleWorkerCount > 0) {
+                lock.notify();
+            } else if (workerCount < MAX_WORKERS) {
+                startWorker();
+            }
+        }
+    }
+
+    private static void startWorker() {
+        ++workerCount;
+        new Thread(AsyncEventQueue::work).start();
+    }
+
+    private static void work() {
+        try {
+            while (true) {
+                Runnable task;
+                synchronized (lock) {
+                    while (tasks.isEmpty()) {
+                        ++idleWorkerCount;
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        } finally {
+                            --idleWorkerCount;
+                        }
+                    }
+                    task = tasks.remove();
+                }
+
+                // Exceptions are not caught, like in plain event handlers, and reach the uncaught exception
+                // handler of the thread. The worker is replaced below, if needed.
+                task.run();
+            }
+        } finally {
+            synchronized (lock) {
+                --workerCount;
+                if (!tasks.isEmpty() && idleWorkerCount == 0) {
+                    startWorker();
+                }
+            }
+        }
+    }
+}
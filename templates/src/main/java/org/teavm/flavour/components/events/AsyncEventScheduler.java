@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.components.events;
+
+/**
+ * <p>Provides timers and the handler queue to async event binders. The default implementation relies on
+ * browser timers and a small pool of worker threads, see {@link BaseAsyncEventBinder#setScheduler}.</p>
+ */
+public interface AsyncEventScheduler {
+    /**
+     * <p>Runs the action after the given number of milliseconds.</p>
+     *
+     * @return non-negative identifier of the timer, to pass to {@link #clearTimeout(int)}.
+     */
+    int setTimeout(Runnable action, int delay);
+
+    void clearTimeout(int timerId);
+
+    /**
+     * <p>Runs the event handler outside of the event callback.</p>
+     */
+    void submit(Runnable handler);
+}
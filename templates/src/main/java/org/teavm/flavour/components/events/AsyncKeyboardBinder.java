@@ -19,7 +19,12 @@ import org.teavm.flavour.templates.BindAttributeComponent;
 import org.teavm.flavour.templates.ModifierTarget;
 import org.teavm.jso.dom.events.KeyboardEvent;
 
-@BindAttributeComponent(name = { "async-keyup", "async-keydown", "async-keypress" })
+@BindAttributeComponent(name = {
+        "async-keyup", "async-keydown", "async-keypress",
+        "debounce-keyup", "debounce-keydown", "debounce-keypress",
+        "throttle-keyup", "throttle-keydown", "throttle-keypress",
+        "latest-keyup", "latest-keydown", "latest-keypress"
+})
 public class AsyncKeyboardBinder extends BaseAsyncEventBinder<KeyboardEvent> {
     public AsyncKeyboardBinder(ModifierTarget target) {
         super(target);
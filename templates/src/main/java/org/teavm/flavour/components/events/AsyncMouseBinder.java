@@ -19,7 +19,12 @@ import org.teavm.flavour.templates.BindAttributeComponent;
 import org.teavm.flavour.templates.ModifierTarget;
 import org.teavm.jso.dom.events.MouseEvent;
 
-@BindAttributeComponent(name = { "async-click", "async-dblclick", "async-mouseup", "async-mousedown" })
+@BindAttributeComponent(name = {
+        "async-click", "async-dblclick", "async-mouseup", "async-mousedown",
+        "debounce-click", "debounce-dblclick", "debounce-mouseup", "debounce-mousedown",
+        "throttle-click", "throttle-dblclick", "throttle-mouseup", "throttle-mousedown",
+        "latest-click", "latest-dblclick", "latest-mouseup", "latest-mousedown"
+})
 public class AsyncMouseBinder extends BaseAsyncEventBinder<MouseEvent> {
     public AsyncMouseBinder(ModifierTarget target) {
         super(target);
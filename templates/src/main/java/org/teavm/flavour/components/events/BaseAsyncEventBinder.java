@@ -24,31 +24,93 @@ import org.teavm.jso.dom.events.Event;
 import org.teavm.jso.dom.events.EventListener;
 import org.teavm.jso.dom.html.HTMLElement;
 
+/**
+ * <p>Runs the handler outside of the event callback, on a shared worker queue. The prefix of the attribute name
+ * controls how bursts of events are handled:</p>
+ *
+ * <ul>
+ *   <li><code>async-</code> handles every event;</li>
+ *   <li><code>debounce-</code> handles the last event once no events came for {@link #getDelay()} milliseconds;</li>
+ *   <li><code>throttle-</code> handles at most one event per {@link #getDelay()} milliseconds, the last one
+ *   of the events skipped meanwhile is handled at the end of the period;</li>
+ *   <li><code>latest-</code> runs one handler at a time, events that come while the handler is running
+ *   supersede each other and only the last one is handled afterwards.</li>
+ * </ul>
+ */
 public abstract class BaseAsyncEventBinder<T extends Event> implements Renderable {
+    private static int delay = 300;
+    private static AsyncEventScheduler scheduler = WindowAsyncEventScheduler.INSTANCE;
     private HTMLElement element;
     private String eventName;
-    private EventListener<T> action;
+    private Mode mode;
+    private Consumer<T> handler;
     private boolean bound;
+    private EventDelegation.Registration registration;
+    private T pendingEvent;
+    private int timerId = -1;
+    private boolean running;
 
     public BaseAsyncEventBinder(ModifierTarget target) {
         this.element = target.getElement();
     }
 
+    public static int getDelay() {
+        return delay;
+    }
+
+    public static void setDelay(int delay) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("Delay must not be negative: " + delay);
+        }
+        BaseAsyncEventBinder.delay = delay;
+    }
+
+    public static AsyncEventScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * <p>Replaces timers and the handler queue used by async event binders, for example with one driven
+     * by a virtual clock. Passing <code>null</code> restores the default scheduler.</p>
+     */
+    public static void setScheduler(AsyncEventScheduler scheduler) {
+        BaseAsyncEventBinder.scheduler = scheduler != null ? scheduler : WindowAsyncEventScheduler.INSTANCE;
+    }
+
     @BindElementName
     public void setEventName(String eventName) {
-        this.eventName = eventName.substring("async-".length());
+        int separator = eventName.indexOf('-');
+        switch (eventName.substring(0, separator)) {
+            case "debounce":
+                mode = Mode.DEBOUNCE;
+                break;
+            case "throttle":
+                mode = Mode.THROTTLE;
+                break;
+            case "latest":
+                mode = Mode.LATEST;
+                break;
+            default:
+                mode = Mode.EVERY;
+                break;
+        }
+        this.eventName = eventName.substring(separator + 1);
     }
 
     @BindContent
     public void setHandler(final Consumer<T> handler) {
-        this.action = evt -> new Thread(() -> handler.accept(evt)).start();
+        this.handler = handler;
     }
 
     @Override
     public void render() {
         if (!bound) {
             bound = true;
-            element.addEventListener(eventName, action);
+            if (EventDelegation.enabled) {
+                registration = EventDelegation.register(element, eventName, action);
+            } else {
+                element.addEventListener(eventName, action);
+            }
         }
     }
 
@@ -56,7 +118,85 @@ public abstract class BaseAsyncEventBinder<T extends Event> implements Renderabl
     public void destroy() {
         if (bound) {
             bound = false;
-            element.removeEventListener(eventName, action);
+            if (registration != null) {
+                EventDelegation.unregister(registration);
+                registration = null;
+            } else {
+                element.removeEventListener(eventName, action);
+            }
+            if (timerId >= 0) {
+                scheduler.clearTimeout(timerId);
+                timerId = -1;
+            }
+            pendingEvent = null;
         }
     }
+
+    private EventListener<T> action = evt -> {
+        switch (mode) {
+            case EVERY:
+                submit(evt);
+                break;
+            case DEBOUNCE:
+                pendingEvent = evt;
+                if (timerId >= 0) {
+                    scheduler.clearTimeout(timerId);
+                }
+                timerId = scheduler.setTimeout(this::submitPending, delay);
+                break;
+            case THROTTLE:
+                if (timerId >= 0) {
+                    pendingEvent = evt;
+                } else {
+                    submit(evt);
+                    timerId = scheduler.setTimeout(this::submitPending, delay);
+                }
+                break;
+            case LATEST:
+                pendingEvent = evt;
+                if (!running) {
+                    runLatest();
+                }
+                break;
+        }
+    };
+
+    private void submitPending() {
+        timerId = -1;
+        if (pendingEvent != null) {
+            T evt = pendingEvent;
+            pendingEvent = null;
+            submit(evt);
+            if (mode == Mode.THROTTLE) {
+                timerId = scheduler.setTimeout(this::submitPending, delay);
+            }
+        }
+    }
+
+    private void submit(T evt) {
+        scheduler.submit(() -> handler.accept(evt));
+    }
+
+    private void runLatest() {
+        running = true;
+        T evt = pendingEvent;
+        pendingEvent = null;
+        scheduler.submit(() -> {
+            try {
+                handler.accept(evt);
+            } finally {
+                running = false;
+                if (pendingEvent != null) {
+                    runLatest();
+                }
+            }
+        });
+    }
+
+    private enum Mode {
+        EVERY,
+        DEBOUNCE,
+        THROTTLE,
+        LATEST
+    }
 }
@@ -27,8 +27,9 @@ import org.teavm.jso.dom.html.HTMLElement;
 public abstract class BaseEventBinder<T extends Event> implements Renderable {
     private HTMLElement element;
     private String eventName;
-    private EventListener<T> action;
+    private Consumer<T> handler;
     private boolean bound;
+    private EventDelegation.Registration registration;
 
     public BaseEventBinder(ModifierTarget target) {
         this.element = target.getElement();
@@ -41,14 +42,18 @@ public abstract class BaseEventBinder<T extends Event> implements Renderable {
 
     @BindContent
     public void setHandler(final Consumer<T> handler) {
-        this.action = handler::accept;
+        this.handler = handler;
     }
 
     @Override
     public void render() {
         if (!bound) {
             bound = true;
-            element.addEventListener(eventName, wrapperListener);
+            if (EventDelegation.enabled) {
+                registration = EventDelegation.register(element, eventName, wrapperListener);
+            } else {
+                element.addEventListener(eventName, wrapperListener);
+            }
         }
     }
 
@@ -56,12 +61,17 @@ public abstract class BaseEventBinder<T extends Event> implements Renderable {
     public void destroy() {
         if (bound) {
             bound = false;
-            element.removeEventListener(eventName, wrapperListener);
+            if (registration != null) {
+                EventDelegation.unregister(registration);
+                registration = null;
+            } else {
+                element.removeEventListener(eventName, wrapperListener);
+            }
         }
     }
 
     private EventListener<T> wrapperListener = evt -> {
-        action.handleEvent(evt);
+        handler.accept(evt);
         if (eventName.equals("submit")) {
             evt.preventDefault();
         }
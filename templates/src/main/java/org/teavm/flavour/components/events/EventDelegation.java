@@ -0,0 +1,173 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.components.events;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSObject;
+import org.teavm.jso.browser.Window;
+import org.teavm.jso.core.JSArray;
+import org.teavm.jso.dom.events.Event;
+import org.teavm.jso.dom.events.EventListener;
+import org.teavm.jso.dom.html.HTMLDocument;
+import org.teavm.jso.dom.xml.Node;
+
+/**
+ * <p>Dispatches events of event binders through a single document listener per event type instead of
+ * a listener per element. Listeners are kept on their elements and invoked while walking up from
+ * the event target, so a large list costs no DOM listener registration per row. Since events are handled
+ * by the document, <code>currentTarget</code> of a delegated event is the document. Events that don't bubble,
+ * like <code>focus</code>, are caught in the capturing phase and dispatched only to listeners of their target.</p>
+ */
+public final class EventDelegation {
+    private static final String PROPERTY_PREFIX = "$$flavourListeners$$";
+    static boolean enabled;
+    private static final Set<String> NON_BUBBLING_EVENTS = new HashSet<>(Arrays.asList("focus", "blur",
+            "mouseenter", "mouseleave", "scroll", "load", "error"));
+    private static Map<String, DocumentListener> documentListeners = new HashMap<>();
+
+    private EventDelegation() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * <p>When enabled, event binders rendered for the first time afterwards register with the document
+     * listener of their event type.</p>
+     */
+    public static void setEnabled(boolean enabled) {
+        EventDelegation.enabled = enabled;
+    }
+
+    /**
+     * <p>Adds the listener to the element and returns the registration to pass to
+     * {@link #unregister(Registration)}. The registration keeps the very function object stored on the element,
+     * so removal doesn't depend on how the listener is converted to JavaScript.</p>
+     */
+    static Registration register(Node element, String eventName, EventListener<?> listener) {
+        DocumentListener documentListener = documentListeners.get(eventName);
+        if (documentListener == null) {
+            documentListener = new DocumentListener(eventName);
+            documentListeners.put(eventName, documentListener);
+            getDocument().addEventListener(eventName, documentListener, documentListener.capture);
+        }
+        documentListener.count++;
+        String property = PROPERTY_PREFIX + eventName;
+        JSArray<JSObject> listeners = getListeners(element, property);
+        if (listeners == null) {
+            listeners = JSArray.create();
+            setListeners(element, property, listeners);
+        }
+        JSObject function = toFunction(listener);
+        listeners.push(function);
+        return new Registration(element, eventName, function);
+    }
+
+    static void unregister(Registration registration) {
+        JSArray<JSObject> listeners = getListeners(registration.element, PROPERTY_PREFIX + registration.eventName);
+        if (listeners == null || !removeListener(listeners, registration.function)) {
+            return;
+        }
+        DocumentListener documentListener = documentListeners.get(registration.eventName);
+        if (--documentListener.count == 0) {
+            documentListeners.remove(registration.eventName);
+            getDocument().removeEventListener(registration.eventName, documentListener, documentListener.capture);
+        }
+    }
+
+    static final class Registration {
+        final Node element;
+        final String eventName;
+        final JSObject function;
+
+        Registration(Node element, String eventName, JSObject function) {
+            this.element = element;
+            this.eventName = eventName;
+            this.function = function;
+        }
+    }
+
+    private static HTMLDocument getDocument() {
+        return Window.current().getDocument();
+    }
+
+    private static class DocumentListener implements EventListener<Event> {
+        String property;
+        boolean capture;
+        int count;
+
+        DocumentListener(String eventName) {
+            property = PROPERTY_PREFIX + eventName;
+            // These events don't bubble, but still pass through the document in capturing phase
+            capture = NON_BUBBLING_EVENTS.contains(eventName);
+        }
+
+        @Override
+        public void handleEvent(Event evt) {
+            if (!isBubbling(evt)) {
+                JSArray<JSObject> listeners = getListeners((Node) evt.getTarget(), property);
+                if (listeners != null) {
+                    for (int i = 0; i < listeners.getLength(); ++i) {
+                        dispatch(listeners.get(i), evt);
+                    }
+                }
+                return;
+            }
+            for (Node node = (Node) evt.getTarget(); node != null; node = node.getParentNode()) {
+                JSArray<JSObject> listeners = getListeners(node, property);
+                if (listeners != null) {
+                    for (int i = 0; i < listeners.getLength(); ++i) {
+                        dispatch(listeners.get(i), evt);
+                    }
+                    if (isPropagationStopped(evt)) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    @JSBody(params = { "node", "property" }, script = "return node[property] || null;")
+    private static native <T extends JSObject> JSArray<T> getListeners(Node node, String property);
+
+    @JSBody(params = { "node", "property", "listeners" }, script = "node[property] = listeners;")
+    private static native void setListeners(Node node, String property, JSObject listeners);
+
+    @JSBody(params = { "listeners", "listener" }, script = ""
+            + "var index = listeners.indexOf(listener);"
+            + "if (index < 0) { return false; }"
+            + "listeners.splice(index, 1);"
+            + "return true;")
+    private static native boolean removeListener(JSArray<?> listeners, JSObject listener);
+
+    @JSBody(params = "listener", script = "return listener;")
+    private static native JSObject toFunction(EventListener<?> listener);
+
+    @JSBody(params = { "listener", "event" }, script = "listener(event);")
+    private static native void dispatch(JSObject listener, Event event);
+
+    @JSBody(params = "event", script = "return event.bubbles;")
+    private static native boolean isBubbling(Event event);
+
+    @JSBody(params = "event", script = "return event.cancelBubble;")
+    private static native boolean isPropagationStopped(Event event);
+}
@@ -0,0 +1,40 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.components.events;
+
+import org.teavm.jso.browser.Window;
+
+final class WindowAsyncEventScheduler implements AsyncEventScheduler {
+    static final WindowAsyncEventScheduler INSTANCE = new WindowAsyncEventScheduler();
+
+    private WindowAsyncEventScheduler() {
+    }
+
+    @Override
+    public int setTimeout(Runnable action, int delay) {
+        return Window.setTimeout(action::run, delay);
+    }
+
+    @Override
+    public void clearTimeout(int timerId) {
+        Window.clearTimeout(timerId);
+    }
+
+    @Override
+    public void submit(Runnable handler) {
+        AsyncEventQueue.submit(handler);
+    }
+}
@@ -15,10 +15,12 @@
  */
 package org.teavm.flavour.components.html;
 
-import java.util.function.Supplier;
+import java.util.function.BooleanSupplier;
 import org.teavm.flavour.templates.BindAttributeComponent;
 import org.teavm.flavour.templates.BindContent;
+import org.teavm.flavour.templates.DomWriteQueue;
 import org.teavm.flavour.templates.ModifierTarget;
+import org.teavm.flavour.templates.RenderInstrumentation;
 import org.teavm.flavour.templates.Renderable;
 import org.teavm.flavour.templates.ValueChangeListener;
 import org.teavm.jso.dom.events.Event;
@@ -28,7 +30,7 @@ import org.teavm.jso.dom.html.HTMLInputElement;
 @BindAttributeComponent(name = "bidir-checked")
 public class BidirectionalCheckedBinder implements Renderable {
     private HTMLInputElement element;
-    private Supplier<Boolean> value;
+    private BooleanSupplier value;
     private boolean cachedValue;
     private ValueChangeListener<Boolean> listener;
     private boolean bound;
@@ -38,7 +40,7 @@ public class BidirectionalCheckedBinder implements Renderable {
     }
 
     @BindContent
-    public void setValue(Supplier<Boolean> value) {
+    public void setValue(BooleanSupplier value) {
         this.value = value;
     }
 
@@ -49,10 +51,11 @@ public class BidirectionalCheckedBinder implements Renderable {
 
     @Override
     public void render() {
-        boolean newValue = value.get();
+        boolean newValue = value.getAsBoolean();
         if (newValue != cachedValue) {
             cachedValue = newValue;
-            element.setChecked(newValue);
+            DomWriteQueue.setProperty(element, "checked", newValue);
+            RenderInstrumentation.recordDomMutation();
         }
 
         if (!bound) {
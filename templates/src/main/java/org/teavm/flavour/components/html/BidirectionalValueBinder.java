@@ -19,7 +19,9 @@ import java.util.Objects;
 import java.util.function.Supplier;
 import org.teavm.flavour.templates.BindAttributeComponent;
 import org.teavm.flavour.templates.BindContent;
+import org.teavm.flavour.templates.DomWriteQueue;
 import org.teavm.flavour.templates.ModifierTarget;
+import org.teavm.flavour.templates.RenderInstrumentation;
 import org.teavm.flavour.templates.Renderable;
 import org.teavm.flavour.templates.ValueChangeListener;
 import org.teavm.jso.dom.html.HTMLInputElement;
@@ -53,12 +55,16 @@ public class BidirectionalValueBinder<T> implements Renderable {
         Object newValue = value.get();
         if (!Objects.equals(newValue, cachedValue)) {
             cachedValue = newValue;
-            element.setValue(String.valueOf(newValue));
+            String text = String.valueOf(newValue);
+            if (!text.equals(DomWriteQueue.getValue(element))) {
+                DomWriteQueue.setProperty(element, "value", text);
+                RenderInstrumentation.recordDomMutation();
+            }
         }
 
         if (!bound) {
             bound = true;
-            target.addValueChangeListener(listener);
+            bind(target, listener);
         }
     }
 
@@ -66,7 +72,25 @@ public class BidirectionalValueBinder<T> implements Renderable {
     public void destroy() {
         if (bound) {
             bound = false;
-            target.removeValueChangeListener(listener);
+            unbind(target, listener);
+        }
+    }
+
+    protected void bind(ModifierTarget target, ValueChangeListener<String> listener) {
+        target.addValueChangeListener(listener);
+    }
+
+    protected void unbind(ModifierTarget target, ValueChangeListener<String> listener) {
+        target.removeValueChangeListener(listener);
+    }
+
+    /**
+     * <p>Pushes the current value of the element to the model, unless it equals the value rendered last time.</p>
+     */
+    void commit() {
+        String text = DomWriteQueue.getValue(element);
+        if (!text.equals(String.valueOf(cachedValue))) {
+            listener.changed(text);
         }
     }
 }
@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.components.html;
+
+import java.util.function.BooleanSupplier;
+import org.teavm.flavour.templates.BindAttributeComponent;
+import org.teavm.flavour.templates.BindContent;
+import org.teavm.flavour.templates.BindElementName;
+import org.teavm.flavour.templates.DomWriteQueue;
+import org.teavm.flavour.templates.ModifierTarget;
+import org.teavm.flavour.templates.RenderInstrumentation;
+import org.teavm.flavour.templates.Renderable;
+import org.teavm.jso.dom.html.HTMLElement;
+
+/**
+ * <p>Adds or removes a single class of an element, e.g. <code>html:class-selected="item == current"</code>,
+ * leaving other classes untouched.</p>
+ */
+@BindAttributeComponent(name = "class-*")
+public class ClassBinder implements Renderable {
+    private static final String PREFIX = "class-";
+    private HTMLElement element;
+    private BooleanSupplier value;
+    private String className;
+    private boolean cachedValue;
+    private boolean rendered;
+
+    public ClassBinder(ModifierTarget target) {
+        this.element = target.getElement();
+    }
+
+    @BindContent
+    public void setValue(BooleanSupplier value) {
+        this.value = value;
+    }
+
+    @BindElementName
+    public void setName(String name) {
+        className = name.substring(PREFIX.length());
+    }
+
+    @Override
+    public void render() {
+        boolean newValue = value.getAsBoolean();
+        if (!rendered || newValue != cachedValue) {
+            rendered = true;
+            cachedValue = newValue;
+            DomWriteQueue.setClass(element, className, newValue);
+            RenderInstrumentation.recordDomMutation();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (cachedValue) {
+            DomWriteQueue.setClass(element, className, false);
+        }
+    }
+}
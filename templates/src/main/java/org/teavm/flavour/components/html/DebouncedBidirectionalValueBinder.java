@@ -0,0 +1,86 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.components.html;
+
+import org.teavm.flavour.components.events.AsyncEventScheduler;
+import org.teavm.flavour.components.events.BaseAsyncEventBinder;
+import org.teavm.flavour.templates.BindAttributeComponent;
+import org.teavm.flavour.templates.ModifierTarget;
+import org.teavm.flavour.templates.ValueChangeListener;
+import org.teavm.jso.dom.events.Event;
+import org.teavm.jso.dom.events.EventListener;
+import org.teavm.jso.dom.html.HTMLElement;
+
+/**
+ * <p>Like <code>html:bidir-value</code>, but updates the model while the user types, once no input came
+ * for {@link BaseAsyncEventBinder#getDelay()} milliseconds. The update goes through the same scheduler
+ * as handlers of <code>event:debounce-</code> bindings. A pending update is performed immediately
+ * on <code>change</code>.</p>
+ */
+@BindAttributeComponent(name = "bidir-value-debounce")
+public class DebouncedBidirectionalValueBinder<T> extends BidirectionalValueBinder<T> {
+    private AsyncEventScheduler scheduler;
+    private int timerId = -1;
+    private boolean bound;
+    private EventListener<Event> inputListener = evt -> {
+        cancel();
+        scheduler = BaseAsyncEventBinder.getScheduler();
+        timerId = scheduler.setTimeout(this::submit, BaseAsyncEventBinder.getDelay());
+    };
+    private EventListener<Event> changeListener = evt -> flush();
+
+    public DebouncedBidirectionalValueBinder(ModifierTarget target) {
+        super(target);
+    }
+
+    @Override
+    protected void bind(ModifierTarget target, ValueChangeListener<String> listener) {
+        bound = true;
+        HTMLElement element = target.getElement();
+        element.addEventListener("input", inputListener);
+        element.addEventListener("change", changeListener);
+    }
+
+    @Override
+    protected void unbind(ModifierTarget target, ValueChangeListener<String> listener) {
+        bound = false;
+        cancel();
+        HTMLElement element = target.getElement();
+        element.removeEventListener("input", inputListener);
+        element.removeEventListener("change", changeListener);
+    }
+
+    private void submit() {
+        timerId = -1;
+        scheduler.submit(() -> {
+            if (bound) {
+                commit();
+            }
+        });
+    }
+
+    private void flush() {
+        cancel();
+        commit();
+    }
+
+    private void cancel() {
+        if (timerId >= 0) {
+            scheduler.clearTimeout(timerId);
+            timerId = -1;
+        }
+    }
+}
@@ -15,17 +15,19 @@
  */
 package org.teavm.flavour.components.html;
 
-import java.util.function.Supplier;
+import java.util.function.BooleanSupplier;
 import org.teavm.flavour.templates.BindAttributeComponent;
 import org.teavm.flavour.templates.BindContent;
+import org.teavm.flavour.templates.DomWriteQueue;
 import org.teavm.flavour.templates.ModifierTarget;
+import org.teavm.flavour.templates.RenderInstrumentation;
 import org.teavm.flavour.templates.Renderable;
 import org.teavm.jso.dom.html.HTMLInputElement;
 
 @BindAttributeComponent(name = "enabled")
 public class EnabledBinder implements Renderable {
     private HTMLInputElement element;
-    private Supplier<Boolean> value;
+    private BooleanSupplier value;
     private boolean cachedValue = true;
 
     public EnabledBinder(ModifierTarget target) {
@@ -33,16 +35,17 @@ public class EnabledBinder implements Renderable {
     }
 
     @BindContent
-    public void setValue(Supplier<Boolean> value) {
+    public void setValue(BooleanSupplier value) {
         this.value = value;
     }
 
     @Override
     public void render() {
-        boolean newValue = value.get();
+        boolean newValue = value.getAsBoolean();
         if (newValue != cachedValue) {
             cachedValue = newValue;
-            element.setDisabled(!newValue);
+            DomWriteQueue.setProperty(element, "disabled", !newValue);
+            RenderInstrumentation.recordDomMutation();
         }
     }
 
@@ -0,0 +1,56 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.components.html;
+
+import org.teavm.flavour.templates.BindAttributeComponent;
+import org.teavm.flavour.templates.ModifierTarget;
+import org.teavm.flavour.templates.ValueChangeListener;
+import org.teavm.jso.dom.events.Event;
+import org.teavm.jso.dom.events.EventListener;
+import org.teavm.jso.dom.events.KeyboardEvent;
+import org.teavm.jso.dom.html.HTMLElement;
+
+/**
+ * <p>Like <code>html:bidir-value</code>, but updates the model only when the element loses focus
+ * or <code>Enter</code> is pressed, and only if the value differs from the one in the model.</p>
+ */
+@BindAttributeComponent(name = "bidir-value-lazy")
+public class LazyBidirectionalValueBinder<T> extends BidirectionalValueBinder<T> {
+    private EventListener<Event> blurListener = evt -> commit();
+    private EventListener<KeyboardEvent> keyListener = evt -> {
+        if (evt.getKeyCode() == 13) {
+            commit();
+        }
+    };
+
+    public LazyBidirectionalValueBinder(ModifierTarget target) {
+        super(target);
+    }
+
+    @Override
+    protected void bind(ModifierTarget target, ValueChangeListener<String> listener) {
+        HTMLElement element = target.getElement();
+        element.addEventListener("blur", blurListener);
+        element.addEventListener("keydown", keyListener);
+    }
+
+    @Override
+    protected void unbind(ModifierTarget target, ValueChangeListener<String> listener) {
+        HTMLElement element = target.getElement();
+        element.removeEventListener("blur", blurListener);
+        element.removeEventListener("keydown", keyListener);
+    }
+}
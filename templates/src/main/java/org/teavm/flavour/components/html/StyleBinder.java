@@ -0,0 +1,73 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.components.html;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+import org.teavm.flavour.templates.BindAttributeComponent;
+import org.teavm.flavour.templates.BindContent;
+import org.teavm.flavour.templates.BindElementName;
+import org.teavm.flavour.templates.DomWriteQueue;
+import org.teavm.flavour.templates.ModifierTarget;
+import org.teavm.flavour.templates.RenderInstrumentation;
+import org.teavm.flavour.templates.Renderable;
+import org.teavm.jso.dom.html.HTMLElement;
+
+/**
+ * <p>Sets a single inline style property of an element, e.g. <code>html:style-width="progress + '%'"</code>.
+ * A <code>null</code> value removes the property.</p>
+ */
+@BindAttributeComponent(name = "style-*")
+public class StyleBinder implements Renderable {
+    private static final String PREFIX = "style-";
+    private HTMLElement element;
+    private Supplier<?> value;
+    private String property;
+    private Object cachedValue;
+    private boolean rendered;
+
+    public StyleBinder(ModifierTarget target) {
+        this.element = target.getElement();
+    }
+
+    @BindContent
+    public void setValue(Supplier<?> value) {
+        this.value = value;
+    }
+
+    @BindElementName
+    public void setName(String name) {
+        property = name.substring(PREFIX.length());
+    }
+
+    @Override
+    public void render() {
+        Object newValue = value.get();
+        if (!rendered || !Objects.equals(newValue, cachedValue)) {
+            rendered = true;
+            cachedValue = newValue;
+            DomWriteQueue.setStyle(element, property, newValue != null ? String.valueOf(newValue) : null);
+            RenderInstrumentation.recordDomMutation();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (cachedValue != null) {
+            DomWriteQueue.setStyle(element, property, null);
+        }
+    }
+}
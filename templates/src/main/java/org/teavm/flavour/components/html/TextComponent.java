@@ -16,12 +16,19 @@
 package org.teavm.flavour.components.html;
 
 import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 import org.teavm.flavour.templates.AbstractComponent;
 import org.teavm.flavour.templates.BindAttribute;
 import org.teavm.flavour.templates.BindElement;
+import org.teavm.flavour.templates.DomWriteQueue;
 import org.teavm.flavour.templates.IgnoreContent;
 import org.teavm.flavour.templates.NodeHolder;
+import org.teavm.flavour.templates.PrimitiveValue;
+import org.teavm.flavour.templates.RenderInstrumentation;
 import org.teavm.flavour.templates.Slot;
 import org.teavm.jso.browser.Window;
 
@@ -32,6 +39,7 @@ public class TextComponent<T> extends AbstractComponent {
     private NodeHolder textSlot;
     private T cachedValue;
     private boolean cacheInitialized;
+    private final PrimitiveValue primitiveValue = new PrimitiveValue();
 
     public TextComponent(Slot slot) {
         super(slot);
@@ -42,19 +50,50 @@ public class TextComponent<T> extends AbstractComponent {
         this.value = value;
     }
 
+    @BindAttribute(name = "value")
+    public void setValue(IntSupplier intValue) {
+        primitiveValue.set(intValue);
+    }
+
+    @BindAttribute(name = "value")
+    public void setValue(LongSupplier longValue) {
+        primitiveValue.set(longValue);
+    }
+
+    @BindAttribute(name = "value")
+    public void setValue(DoubleSupplier doubleValue) {
+        primitiveValue.set(doubleValue);
+    }
+
+    @BindAttribute(name = "value")
+    public void setValue(BooleanSupplier booleanValue) {
+        primitiveValue.set(booleanValue);
+    }
+
     @Override
     public void render() {
-        T computedValue = value.get();
-        if (cacheInitialized && Objects.equals(cachedValue, computedValue)) {
-            return;
+        if (primitiveValue.isBound()) {
+            if (primitiveValue.update()) {
+                updateText(primitiveValue.getText());
+            }
+        } else {
+            T computedValue = value.get();
+            if (cacheInitialized && Objects.equals(cachedValue, computedValue)) {
+                return;
+            }
+            cacheInitialized = true;
+            cachedValue = computedValue;
+            updateText(String.valueOf(computedValue));
         }
-        cacheInitialized = true;
-        cachedValue = computedValue;
+    }
+
+    private void updateText(String text) {
         if (textSlot != null) {
-            textSlot.delete();
-            textSlot = null;
+            DomWriteQueue.setText(textSlot.getNode(), text);
+            RenderInstrumentation.recordDomMutation();
+            return;
         }
-        textSlot = new NodeHolder(Window.current().getDocument().createTextNode(String.valueOf(computedValue)));
+        textSlot = new NodeHolder(Window.current().getDocument().createTextNode(text));
         getSlot().append(textSlot);
     }
 }
@@ -16,10 +16,17 @@
 package org.teavm.flavour.components.html;
 
 import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 import org.teavm.flavour.templates.BindAttributeComponent;
 import org.teavm.flavour.templates.BindContent;
+import org.teavm.flavour.templates.DomWriteQueue;
 import org.teavm.flavour.templates.ModifierTarget;
+import org.teavm.flavour.templates.PrimitiveValue;
+import org.teavm.flavour.templates.RenderInstrumentation;
 import org.teavm.flavour.templates.Renderable;
 import org.teavm.jso.dom.html.HTMLInputElement;
 
@@ -28,6 +35,7 @@ public class ValueBinder<T> implements Renderable {
     HTMLInputElement element;
     private Supplier<T> value;
     private Object cachedValue;
+    private final PrimitiveValue primitiveValue = new PrimitiveValue();
 
     public ValueBinder(ModifierTarget target) {
         this.element = (HTMLInputElement) target.getElement();
@@ -38,15 +46,46 @@ public class ValueBinder<T> implements Renderable {
         this.value = value;
     }
 
+    @BindContent
+    public void setValue(IntSupplier intValue) {
+        primitiveValue.set(intValue);
+    }
+
+    @BindContent
+    public void setValue(LongSupplier longValue) {
+        primitiveValue.set(longValue);
+    }
+
+    @BindContent
+    public void setValue(DoubleSupplier doubleValue) {
+        primitiveValue.set(doubleValue);
+    }
+
+    @BindContent
+    public void setValue(BooleanSupplier booleanValue) {
+        primitiveValue.set(booleanValue);
+    }
+
     @Override
     public void render() {
-        Object newValue = value.get();
-        if (!Objects.equals(newValue, cachedValue)) {
-            cachedValue = newValue;
-            element.setValue(String.valueOf(newValue));
+        if (primitiveValue.isBound()) {
+            if (primitiveValue.update()) {
+                updateElement(primitiveValue.getText());
+            }
+        } else {
+            Object newValue = value.get();
+            if (!Objects.equals(newValue, cachedValue)) {
+                cachedValue = newValue;
+                updateElement(String.valueOf(newValue));
+            }
         }
     }
 
+    private void updateElement(String text) {
+        DomWriteQueue.setProperty(element, "value", text);
+        RenderInstrumentation.recordDomMutation();
+    }
+
     @Override
     public void destroy() {
     }
@@ -0,0 +1,206 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.components.standard;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.teavm.flavour.templates.Component;
+
+/**
+ * <p>Decides what happens to the content of a <code>std:if</code> or <code>std:choose</code> branch
+ * when it gets hidden. Retained branches are reattached without being created again, at the cost of keeping
+ * their components and DOM nodes in memory.</p>
+ */
+public final class BranchRetention {
+    private static Policy policy = Policy.DEFAULT;
+    private static int capacity = 16;
+    private static int maxHiddenRenders;
+    private static Set<RetainedBranch> boundedBranches = new LinkedHashSet<>();
+    private static int retainedBranchCount;
+    private static int evictedBranchCount;
+
+    private BranchRetention() {
+    }
+
+    public enum Policy {
+        /**
+         * <p><code>std:if</code> keeps its hidden content, <code>std:choose</code> destroys content
+         * of the previous option.</p>
+         */
+        DEFAULT,
+        KEEP_ALIVE,
+        DESTROY_ON_HIDE,
+        /**
+         * <p>Hidden branches are kept up to {@link BranchRetention#getCapacity()} across all components,
+         * destroying the branch hidden least recently when the limit is exceeded. When
+         * {@link BranchRetention#getMaxHiddenRenders()} is positive, a branch that stays hidden during that many
+         * renders of its owner is destroyed as well. The limits apply to branches hidden while this policy
+         * is in effect.</p>
+         */
+        BOUNDED
+    }
+
+    public static Policy getPolicy() {
+        return policy;
+    }
+
+    public static void setPolicy(Policy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Policy must not be null");
+        }
+        BranchRetention.policy = policy;
+        if (policy == Policy.BOUNDED) {
+            evictExcess();
+        }
+    }
+
+    public static int getCapacity() {
+        return capacity;
+    }
+
+    public static void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        }
+        BranchRetention.capacity = capacity;
+        if (policy == Policy.BOUNDED) {
+            evictExcess();
+        }
+    }
+
+    public static int getMaxHiddenRenders() {
+        return maxHiddenRenders;
+    }
+
+    public static void setMaxHiddenRenders(int maxHiddenRenders) {
+        if (maxHiddenRenders < 0) {
+            throw new IllegalArgumentException("Number of renders must not be negative: " + maxHiddenRenders);
+        }
+        BranchRetention.maxHiddenRenders = maxHiddenRenders;
+    }
+
+    /**
+     * <p>Number of hidden branches currently kept in memory.</p>
+     */
+    public static int getRetainedBranchCount() {
+        return retainedBranchCount;
+    }
+
+    /**
+     * <p>Number of hidden branches destroyed by the {@link Policy#BOUNDED} policy.</p>
+     */
+    public static int getEvictedBranchCount() {
+        return evictedBranchCount;
+    }
+
+    public static void resetStatistics() {
+        evictedBranchCount = 0;
+    }
+
+    static RetainedBranch hide(Component component, boolean keepByDefault) {
+        boolean keep;
+        switch (policy) {
+            case KEEP_ALIVE:
+            case BOUNDED:
+                keep = true;
+                break;
+            case DESTROY_ON_HIDE:
+                keep = false;
+                break;
+            default:
+                keep = keepByDefault;
+                break;
+        }
+        if (!keep || (policy == Policy.BOUNDED && capacity == 0)) {
+            component.destroy();
+            return null;
+        }
+        component.getSlot().delete();
+        RetainedBranch branch = new RetainedBranch(component);
+        ++retainedBranchCount;
+        // Only the bounded policy needs to reach hidden branches from outside of their owners
+        if (policy == Policy.BOUNDED) {
+            branch.bounded = true;
+            boundedBranches.add(branch);
+            evictExcess();
+        }
+        return branch;
+    }
+
+    static Component show(RetainedBranch branch) {
+        Component component = branch.component;
+        release(branch);
+        return component;
+    }
+
+    /**
+     * <p>Called when the owner renders while the branch is hidden. Returns <code>false</code>
+     * if the branch got destroyed.</p>
+     */
+    static boolean renderHidden(RetainedBranch branch) {
+        if (branch.component == null) {
+            return false;
+        }
+        ++branch.hiddenRenders;
+        if (branch.bounded && maxHiddenRenders > 0 && branch.hiddenRenders >= maxHiddenRenders) {
+            ++evictedBranchCount;
+            discard(branch);
+            return false;
+        }
+        return true;
+    }
+
+    static void discard(RetainedBranch branch) {
+        Component component = branch.component;
+        release(branch);
+        if (component != null) {
+            component.destroy();
+        }
+    }
+
+    private static void release(RetainedBranch branch) {
+        if (branch.component != null) {
+            --retainedBranchCount;
+            branch.component = null;
+        }
+        if (branch.bounded) {
+            branch.bounded = false;
+            boundedBranches.remove(branch);
+        }
+    }
+
+    private static void evictExcess() {
+        Iterator<RetainedBranch> iter = boundedBranches.iterator();
+        while (boundedBranches.size() > capacity && iter.hasNext()) {
+            RetainedBranch branch = iter.next();
+            iter.remove();
+            branch.bounded = false;
+            ++evictedBranchCount;
+            discard(branch);
+        }
+    }
+
+    static class RetainedBranch {
+        Component component;
+        int hiddenRenders;
+        boolean bounded;
+
+        RetainedBranch(Component component) {
+            this.component = component;
+        }
+    }
+}
@@ -15,7 +15,9 @@
  */
 package org.teavm.flavour.components.standard;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.teavm.flavour.templates.AbstractComponent;
 import org.teavm.flavour.templates.BindElement;
 import org.teavm.flavour.templates.Component;
@@ -29,6 +31,7 @@ public class ChooseComponent extends AbstractComponent {
     private Component child;
     private ChooseClause currentClause;
     private boolean dirty = true;
+    private Map<Object, BranchRetention.RetainedBranch> hiddenChildren = new HashMap<>();
 
     public ChooseComponent(Slot slot) {
         super(slot);
@@ -55,18 +58,31 @@ public class ChooseComponent extends AbstractComponent {
             }
         }
 
+        renderHidden();
         if (dirty || currentClause != newClause) {
             if (child != null) {
-                child.destroy();
+                BranchRetention.RetainedBranch branch = BranchRetention.hide(child, false);
+                if (branch != null) {
+                    hiddenChildren.put(clauseKey(currentClause), branch);
+                }
                 child = null;
             }
             currentClause = newClause;
-            if (currentClause != null) {
-                child = currentClause.content.create();
-            } else if (otherwiseClause != null) {
-                child = otherwiseClause.content.create();
+            Object key = clauseKey(currentClause);
+            BranchRetention.RetainedBranch hiddenChild = hiddenChildren.remove(key);
+            if (hiddenChild != null) {
+                child = BranchRetention.show(hiddenChild);
+            }
+            if (child == null) {
+                if (currentClause != null) {
+                    child = currentClause.content.create();
+                } else if (otherwiseClause != null) {
+                    child = otherwiseClause.content.create();
+                }
+            }
+            if (child != null) {
+                getSlot().append(child.getSlot());
             }
-            getSlot().append(child.getSlot());
             dirty = false;
         }
 
@@ -75,6 +91,17 @@ public class ChooseComponent extends AbstractComponent {
         }
     }
 
+    private Object clauseKey(ChooseClause clause) {
+        return clause != null ? clause : otherwiseClause;
+    }
+
+    private void renderHidden() {
+        if (hiddenChildren.isEmpty()) {
+            return;
+        }
+        hiddenChildren.values().removeIf(branch -> !BranchRetention.renderHidden(branch));
+    }
+
     @Override
     public void destroy() {
         super.destroy();
@@ -82,5 +109,9 @@ public class ChooseComponent extends AbstractComponent {
             child.destroy();
             child = null;
         }
+        for (BranchRetention.RetainedBranch branch : hiddenChildren.values()) {
+            BranchRetention.discard(branch);
+        }
+        hiddenChildren.clear();
     }
 }
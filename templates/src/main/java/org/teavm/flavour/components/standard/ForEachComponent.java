@@ -15,29 +15,44 @@
  */
 package org.teavm.flavour.components.standard;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import org.teavm.flavour.templates.AbstractComponent;
 import org.teavm.flavour.templates.BindAttribute;
 import org.teavm.flavour.templates.BindContent;
 import org.teavm.flavour.templates.BindElement;
 import org.teavm.flavour.templates.Component;
+import org.teavm.flavour.templates.ComponentPool;
 import org.teavm.flavour.templates.Fragment;
 import org.teavm.flavour.templates.OptionalBinding;
 import org.teavm.flavour.templates.Slot;
 import org.teavm.flavour.templates.Space;
+import org.teavm.flavour.templates.Templates;
 
 @BindElement(name = "foreach")
 public class ForEachComponent<T> extends AbstractComponent {
+    private static final Object[] EMPTY = new Object[0];
     private Supplier<Iterable<T>> collection;
     private T elementVariable;
     private int indexVariable;
     private Fragment body;
-    private List<Component> childComponents = new LinkedList<>();
-    private List<T> computedCollection = new LinkedList<>();
+    private Function<T, Object> key;
+    private Supplier<Integer> poolSize;
+    private ComponentPool pool;
+    private Component[] childComponents = new Component[0];
+    private Object[] computedCollection = EMPTY;
+    private Object[] computedKeys = EMPTY;
+    private int size;
+    private List<T> newList;
+    private Object[] newItems = EMPTY;
+    private Object[] newKeys = EMPTY;
 
     public ForEachComponent(Slot slot) {
         super(slot);
@@ -59,6 +74,18 @@ public class ForEachComponent<T> extends AbstractComponent {
         return indexVariable;
     }
 
+    @BindAttribute(name = "key")
+    @OptionalBinding
+    public void setKey(Function<T, Object> key) {
+        this.key = key;
+    }
+
+    @BindAttribute(name = "pool-size")
+    @OptionalBinding
+    public void setPoolSize(Supplier<Integer> poolSize) {
+        this.poolSize = poolSize;
+    }
+
     @BindContent
     public void setBody(Fragment body) {
         this.body = body;
@@ -66,87 +93,306 @@ public class ForEachComponent<T> extends AbstractComponent {
 
     @Override
     public void render() {
-        List<T> newComputedCollection = initNewCollection();
-
-        ListIterator<T> lowerDataIterator = computedCollection.listIterator();
-        ListIterator<T> lowerNewDataIterator = newComputedCollection.listIterator();
-        ListIterator<Component> lowerComponentIterator = childComponents.listIterator();
-        ListIterator<T> upperDataIterator = computedCollection.listIterator(computedCollection.size());
-        ListIterator<T> upperNewDataIterator = newComputedCollection.listIterator(newComputedCollection.size());
-        ListIterator<Component> upperComponentIterator = childComponents.listIterator(childComponents.size());
-
-        findLastChangedItem(upperDataIterator, upperNewDataIterator, upperComponentIterator);
-        int dataLimit = upperDataIterator.nextIndex();
-        int newDataLimit = upperNewDataIterator.nextIndex();
-        while (lowerDataIterator.hasNext() && lowerDataIterator.nextIndex() < dataLimit
-                && lowerNewDataIterator.hasNext() && lowerNewDataIterator.nextIndex() < newDataLimit) {
-            Component component = lowerComponentIterator.next();
-            indexVariable = lowerDataIterator.nextIndex();
-            elementVariable = lowerNewDataIterator.next();
-            lowerDataIterator.next();
-            component.render();
+        if (poolSize != null) {
+            int capacity = poolSize.get();
+            if (pool == null) {
+                pool = new ComponentPool(body, capacity);
+            } else if (pool.getCapacity() != capacity) {
+                pool.setCapacity(capacity);
+            }
         }
 
-        if (lowerDataIterator.hasNext() && lowerDataIterator.nextIndex() < dataLimit) {
-            while (lowerDataIterator.hasNext() && lowerDataIterator.nextIndex() < dataLimit) {
-                Component component = lowerComponentIterator.next();
-                lowerComponentIterator.remove();
-                component.destroy();
-                lowerDataIterator.next();
-                lowerDataIterator.remove();
-                --dataLimit;
+        int newSize = initNewCollection();
+        try {
+            if (isUnchanged(newSize)) {
+                for (int i = 0; i < size; ++i) {
+                    renderChild(i);
+                }
+            } else if (key != null) {
+                renderKeyed(newSize);
+            } else {
+                renderPlain(newSize);
             }
-        } else if (lowerNewDataIterator.hasNext() && lowerNewDataIterator.nextIndex() < newDataLimit) {
-            Component nextComponent = upperComponentIterator.hasNext() ? upperComponentIterator.next() : null;
-            Space nextSlot = nextComponent != null ? nextComponent.getSlot() : null;
-            while (lowerNewDataIterator.hasNext() && lowerNewDataIterator.nextIndex() < newDataLimit) {
-                indexVariable = lowerNewDataIterator.nextIndex();
-                elementVariable = lowerNewDataIterator.next();
-                lowerDataIterator.add(elementVariable);
-                Component childComponent = body.create();
-                childComponent.render();
-                lowerComponentIterator.add(childComponent);
-                getSlot().insertBefore(childComponent.getSlot(), nextSlot);
+        } finally {
+            releaseNewCollection(newSize);
+        }
+    }
+
+    private boolean isUnchanged(int newSize) {
+        if (newSize != size) {
+            return false;
+        }
+        for (int i = 0; i < newSize; ++i) {
+            if (computedCollection[i] != newItem(i)) {
+                return false;
             }
         }
+        return true;
     }
 
-    private List<T> initNewCollection() {
-        List<T> newComputedCollection;
-        Iterable<T> items = collection.get();
-        if (items instanceof List<?>) {
-            newComputedCollection = (List<T>) items;
-        } else if (items instanceof Collection<?>) {
-            Collection<T> safeItems = (Collection<T>) items;
-            newComputedCollection = new LinkedList<>(safeItems);
+    private void renderPlain(int newSize) {
+        int oldSize = size;
+        int oldEnd = oldSize;
+        int newEnd = newSize;
+        while (oldEnd > 0 && newEnd > 0 && computedCollection[oldEnd - 1] == newItem(newEnd - 1)) {
+            --oldEnd;
+            --newEnd;
+        }
+
+        ensureCapacity(newSize);
+        if (newEnd < oldEnd) {
+            for (int i = newEnd; i < oldEnd; ++i) {
+                releaseChild(childComponents[i]);
+            }
+            System.arraycopy(childComponents, oldEnd, childComponents, newEnd, oldSize - oldEnd);
+        } else if (newEnd > oldEnd) {
+            Space nextSlot = oldEnd < oldSize ? childComponents[oldEnd].getSlot() : null;
+            System.arraycopy(childComponents, oldEnd, childComponents, newEnd, oldSize - oldEnd);
+            for (int i = oldEnd; i < newEnd; ++i) {
+                childComponents[i] = createChild(i, nextSlot);
+            }
+        }
+
+        int reboundEnd = Math.min(oldEnd, newEnd);
+        for (int i = 0; i < reboundEnd; ++i) {
+            renderChild(i);
+        }
+        for (int i = newEnd; i < newSize; ++i) {
+            renderChild(i);
+        }
+        commit(oldSize, newSize);
+    }
+
+    private void renderKeyed(int newSize) {
+        if (newKeys.length < newSize) {
+            newKeys = new Object[newSize];
+        }
+        for (int i = 0; i < newSize; ++i) {
+            newKeys[i] = key.apply(newItem(i));
+        }
+
+        int oldSize = size;
+        int start = 0;
+        while (start < oldSize && start < newSize && Objects.equals(computedKeys[start], newKeys[start])) {
+            ++start;
+        }
+        int oldEnd = oldSize;
+        int newEnd = newSize;
+        while (oldEnd > start && newEnd > start && Objects.equals(computedKeys[oldEnd - 1], newKeys[newEnd - 1])) {
+            --oldEnd;
+            --newEnd;
+        }
+
+        int oldMiddle = oldEnd - start;
+        int newMiddle = newEnd - start;
+        int[] sources = new int[newMiddle];
+        Arrays.fill(sources, -1);
+        if (oldMiddle > 0) {
+            Map<Object, Integer> oldIndexes = new HashMap<>();
+            for (int i = 0; i < oldMiddle; ++i) {
+                oldIndexes.putIfAbsent(computedKeys[start + i], i);
+            }
+            boolean[] reused = new boolean[oldMiddle];
+            for (int i = 0; i < newMiddle; ++i) {
+                Integer oldIndex = oldIndexes.remove(newKeys[start + i]);
+                if (oldIndex != null) {
+                    sources[i] = oldIndex;
+                    reused[oldIndex] = true;
+                }
+            }
+            for (int i = 0; i < oldMiddle; ++i) {
+                if (!reused[i]) {
+                    releaseChild(childComponents[start + i]);
+                }
+            }
+        }
+
+        // Components that belong to the longest increasing run of old positions keep their place,
+        // every other one is moved, so the number of DOM moves is minimal
+        boolean[] stable = longestIncreasingSubsequence(sources);
+        Component[] middle = new Component[newMiddle];
+        Space nextSlot = oldEnd < oldSize ? childComponents[oldEnd].getSlot() : null;
+        if (oldMiddle == 0 && Templates.isHydrating()) {
+            // Pre-rendered markup can only be adopted in document order
+            for (int i = 0; i < newMiddle; ++i) {
+                middle[i] = createChild(start + i, nextSlot);
+            }
         } else {
-            newComputedCollection = new LinkedList<>();
-            for (T item : items) {
-                newComputedCollection.add(item);
+            for (int i = newMiddle - 1; i >= 0; --i) {
+                Component component;
+                if (sources[i] < 0) {
+                    component = createChild(start + i, nextSlot);
+                } else {
+                    component = childComponents[start + sources[i]];
+                    if (!stable[i]) {
+                        getSlot().moveBefore(component.getSlot(), nextSlot);
+                    }
+                }
+                middle[i] = component;
+                nextSlot = component.getSlot();
+            }
+        }
+
+        ensureCapacity(newSize);
+        System.arraycopy(childComponents, oldEnd, childComponents, newEnd, oldSize - oldEnd);
+        System.arraycopy(middle, 0, childComponents, start, newMiddle);
+        for (int i = 0; i < newSize; ++i) {
+            if (i < start || i >= newEnd || sources[i - start] >= 0) {
+                renderChild(i);
             }
         }
-        return newComputedCollection;
+        System.arraycopy(newKeys, 0, computedKeys, 0, newSize);
+        Arrays.fill(newKeys, 0, newSize, null);
+        commit(oldSize, newSize);
     }
 
-    private void findLastChangedItem(ListIterator<T> dataIterator, ListIterator<T> newDataIterator,
-            ListIterator<Component> componentIterator) {
-        while (dataIterator.hasPrevious() && newDataIterator.hasPrevious()) {
-            indexVariable = newDataIterator.previousIndex();
-            elementVariable = newDataIterator.previous();
-            if (elementVariable != dataIterator.previous()) {
-                dataIterator.next();
-                newDataIterator.next();
-                break;
+    static boolean[] longestIncreasingSubsequence(int[] sequence) {
+        int[] predecessors = new int[sequence.length];
+        int[] tails = new int[sequence.length];
+        int length = 0;
+        for (int i = 0; i < sequence.length; ++i) {
+            int value = sequence[i];
+            if (value < 0) {
+                continue;
+            }
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sequence[tails[mid]] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
             }
-            Component component = componentIterator.previous();
+            predecessors[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                ++length;
+            }
+        }
+
+        boolean[] result = new boolean[sequence.length];
+        int index = length > 0 ? tails[length - 1] : -1;
+        while (index >= 0) {
+            result[index] = true;
+            index = predecessors[index];
+        }
+        return result;
+    }
+
+    private Component createChild(int index, Space nextSlot) {
+        indexVariable = index;
+        elementVariable = newItem(index);
+        Component component = pool != null ? pool.acquire() : body.create();
+        if (Templates.isHydrating()) {
+            getSlot().insertBefore(component.getSlot(), nextSlot);
+            component.render();
+        } else {
             component.render();
+            getSlot().insertBefore(component.getSlot(), nextSlot);
+        }
+        return component;
+    }
+
+    private void releaseChild(Component component) {
+        if (pool != null) {
+            pool.release(component);
+        } else {
+            component.destroy();
+        }
+    }
+
+    private void renderChild(int index) {
+        if (Templates.shouldYield()) {
+            deferChild(index);
+            return;
+        }
+        indexVariable = index;
+        elementVariable = newItem(index);
+        childComponents[index].render();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void deferChild(int index) {
+        Component component = childComponents[index];
+        Templates.defer(() -> {
+            if (index < size && childComponents[index] == component) {
+                indexVariable = index;
+                elementVariable = (T) computedCollection[index];
+                component.render();
+            }
+        });
+    }
+
+    private void commit(int oldSize, int newSize) {
+        for (int i = 0; i < newSize; ++i) {
+            computedCollection[i] = newItem(i);
+        }
+        for (int i = newSize; i < oldSize; ++i) {
+            childComponents[i] = null;
+            computedCollection[i] = null;
+            if (computedKeys.length > i) {
+                computedKeys[i] = null;
+            }
         }
+        size = newSize;
     }
+
+    private void ensureCapacity(int capacity) {
+        if (childComponents.length >= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, childComponents.length * 3 / 2);
+        childComponents = Arrays.copyOf(childComponents, newCapacity);
+        computedCollection = Arrays.copyOf(computedCollection, newCapacity);
+        if (key != null) {
+            computedKeys = Arrays.copyOf(computedKeys, newCapacity);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T newItem(int index) {
+        return newList != null ? newList.get(index) : (T) newItems[index];
+    }
+
+    private int initNewCollection() {
+        Iterable<T> items = collection.get();
+        if (items instanceof List<?> && items instanceof RandomAccess) {
+            newList = (List<T>) items;
+            return newList.size();
+        }
+
+        int count = 0;
+        if (items instanceof Collection<?> && newItems.length < ((Collection<?>) items).size()) {
+            newItems = new Object[((Collection<?>) items).size()];
+        }
+        for (T item : items) {
+            if (count == newItems.length) {
+                newItems = Arrays.copyOf(newItems, Math.max(16, count * 2));
+            }
+            newItems[count++] = item;
+        }
+        return count;
+    }
+
+    private void releaseNewCollection(int newSize) {
+        if (newList != null) {
+            newList = null;
+        } else {
+            Arrays.fill(newItems, 0, newSize, null);
+        }
+    }
+
     @Override
     public void destroy() {
         super.destroy();
-        for (int i = childComponents.size() - 1; i >= 0; --i) {
-            childComponents.get(i).destroy();
+        for (int i = size - 1; i >= 0; --i) {
+            childComponents[i].destroy();
+        }
+        size = 0;
+        if (pool != null) {
+            pool.clear();
         }
     }
 }
@@ -15,7 +15,7 @@
  */
 package org.teavm.flavour.components.standard;
 
-import java.util.function.Supplier;
+import java.util.function.BooleanSupplier;
 import org.teavm.flavour.templates.AbstractComponent;
 import org.teavm.flavour.templates.BindAttribute;
 import org.teavm.flavour.templates.BindContent;
@@ -23,12 +23,14 @@ import org.teavm.flavour.templates.BindElement;
 import org.teavm.flavour.templates.Component;
 import org.teavm.flavour.templates.Fragment;
 import org.teavm.flavour.templates.Slot;
+import org.teavm.flavour.templates.Templates;
 
 @BindElement(name = "if")
 public class IfComponent extends AbstractComponent {
-    private Supplier<Boolean> condition;
+    private BooleanSupplier condition;
     private Fragment body;
     private Component childComponent;
+    private BranchRetention.RetainedBranch hiddenChild;
     private boolean showing;
 
     public IfComponent(Slot slot) {
@@ -36,7 +38,7 @@ public class IfComponent extends AbstractComponent {
     }
 
     @BindAttribute(name = "condition")
-    public void setCondition(Supplier<Boolean> condition) {
+    public void setCondition(BooleanSupplier condition) {
         this.condition = condition;
     }
 
@@ -47,20 +49,32 @@ public class IfComponent extends AbstractComponent {
 
     @Override
     public void render() {
-        boolean newShowing = condition.get();
+        boolean newShowing = condition.getAsBoolean();
+        boolean rendered = false;
         if (showing != newShowing) {
             if (newShowing) {
+                if (hiddenChild != null) {
+                    childComponent = BranchRetention.show(hiddenChild);
+                    hiddenChild = null;
+                }
                 if (childComponent == null) {
                     childComponent = body.create();
+                    if (Templates.isDetachedRendering() && !Templates.isHydrating()) {
+                        childComponent.render();
+                        rendered = true;
+                    }
                 }
                 getSlot().append(childComponent.getSlot());
-            } else {
-                childComponent.getSlot().delete();
+            } else if (childComponent != null) {
+                hiddenChild = BranchRetention.hide(childComponent, true);
+                childComponent = null;
             }
+        } else if (hiddenChild != null && !BranchRetention.renderHidden(hiddenChild)) {
+            hiddenChild = null;
         }
         showing = newShowing;
 
-        if (showing) {
+        if (showing && !rendered) {
             childComponent.render();
         }
     }
@@ -70,6 +84,10 @@ public class IfComponent extends AbstractComponent {
         if (childComponent != null) {
             childComponent.destroy();
         }
+        if (hiddenChild != null) {
+            BranchRetention.discard(hiddenChild);
+            hiddenChild = null;
+        }
         super.destroy();
     }
 }
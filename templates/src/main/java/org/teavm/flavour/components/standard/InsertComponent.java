@@ -15,19 +15,28 @@
  */
 package org.teavm.flavour.components.standard;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.function.Supplier;
 import org.teavm.flavour.templates.AbstractComponent;
 import org.teavm.flavour.templates.BindAttribute;
 import org.teavm.flavour.templates.BindElement;
 import org.teavm.flavour.templates.Component;
+import org.teavm.flavour.templates.ComponentPool;
 import org.teavm.flavour.templates.Fragment;
+import org.teavm.flavour.templates.OptionalBinding;
 import org.teavm.flavour.templates.Slot;
+import org.teavm.flavour.templates.Templates;
 
 @BindElement(name = "insert")
 public class InsertComponent extends AbstractComponent {
+    private static final int MAX_POOLS = 4;
     private Supplier<Fragment> fragment;
     private Fragment renderedFragment;
     private Component body;
+    private Supplier<Integer> poolSize;
+    private Map<Fragment, ComponentPool> pools;
+    private int poolCapacity;
 
     public InsertComponent(Slot slot) {
         super(slot);
@@ -38,23 +47,87 @@ public class InsertComponent extends AbstractComponent {
         this.fragment = fragment;
     }
 
+    @BindAttribute(name = "pool-size")
+    @OptionalBinding
+    public void setPoolSize(Supplier<Integer> poolSize) {
+        this.poolSize = poolSize;
+    }
+
     @Override
     public void render() {
+        if (poolSize != null) {
+            int capacity = poolSize.get();
+            if (pools != null && capacity != poolCapacity) {
+                for (ComponentPool pool : pools.values()) {
+                    pool.setCapacity(capacity);
+                }
+            }
+            poolCapacity = capacity;
+        }
+
         Fragment newFragment = fragment.get();
+        boolean rendered = false;
         if (newFragment != renderedFragment) {
             if (body != null) {
-                body.destroy();
+                if (pools != null) {
+                    pools.get(renderedFragment).release(body);
+                } else {
+                    body.destroy();
+                }
             }
             renderedFragment = newFragment;
             if (newFragment != null) {
-                body = newFragment.create();
+                body = createBody(newFragment);
+                if (Templates.isDetachedRendering() && !Templates.isHydrating()) {
+                    body.render();
+                    rendered = true;
+                }
                 getSlot().append(body.getSlot());
             } else {
                 body = null;
             }
         }
-        if (body != null) {
+        if (body != null && !rendered) {
             body.render();
         }
     }
+
+    private Component createBody(Fragment fragment) {
+        if (poolSize == null) {
+            return fragment.create();
+        }
+        if (pools == null) {
+            // Fragment expressions may produce a new instance on every change, so only pools of
+            // a few recently rendered fragments are kept
+            pools = new LinkedHashMap<Fragment, ComponentPool>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Fragment, ComponentPool> eldest) {
+                    if (size() > MAX_POOLS && eldest.getKey() != renderedFragment) {
+                        eldest.getValue().clear();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+        ComponentPool pool = pools.get(fragment);
+        if (pool == null) {
+            pool = new ComponentPool(fragment, poolCapacity);
+            pools.put(fragment, pool);
+        }
+        return pool.acquire();
+    }
+
+    @Override
+    public void destroy() {
+        if (body != null) {
+            body.destroy();
+        }
+        if (pools != null) {
+            for (ComponentPool pool : pools.values()) {
+                pool.clear();
+            }
+        }
+        super.destroy();
+    }
 }
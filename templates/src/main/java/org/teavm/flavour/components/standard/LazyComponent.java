@@ -0,0 +1,156 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.components.standard;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import org.teavm.flavour.templates.AbstractComponent;
+import org.teavm.flavour.templates.BindAttribute;
+import org.teavm.flavour.templates.BindContent;
+import org.teavm.flavour.templates.BindElement;
+import org.teavm.flavour.templates.Component;
+import org.teavm.flavour.templates.Fragment;
+import org.teavm.flavour.templates.NodeHolder;
+import org.teavm.flavour.templates.OptionalBinding;
+import org.teavm.flavour.templates.Slot;
+import org.teavm.flavour.templates.Templates;
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSFunctor;
+import org.teavm.jso.JSObject;
+import org.teavm.jso.browser.Window;
+import org.teavm.jso.dom.html.HTMLElement;
+
+/**
+ * <p>Creates and renders its content only when it comes close to the viewport, as reported by
+ * <code>IntersectionObserver</code>. The content is hosted by a <code>div</code> element, which may be given
+ * a minimal height while empty to keep the page geometry. With <code>suspend-offscreen</code> the content is not
+ * re-rendered while it is outside of the viewport and catches up once it becomes visible again.
+ * In browsers without <code>IntersectionObserver</code> the content is rendered immediately.</p>
+ */
+@BindElement(name = "lazy")
+public class LazyComponent extends AbstractComponent {
+    private static final String DEFAULT_MARGIN = "200px";
+    private Fragment content;
+    private Supplier<String> margin;
+    private Supplier<String> placeholderHeight;
+    private BooleanSupplier suspendOffscreen;
+    private HTMLElement container;
+    private Slot contentSlot;
+    private JSObject observer;
+    private boolean visible;
+    private boolean stale;
+    private Component child;
+
+    public LazyComponent(Slot slot) {
+        super(slot);
+    }
+
+    @BindContent
+    public void setContent(Fragment content) {
+        this.content = content;
+    }
+
+    @BindAttribute(name = "margin")
+    @OptionalBinding
+    public void setMargin(Supplier<String> margin) {
+        this.margin = margin;
+    }
+
+    @BindAttribute(name = "placeholder-height")
+    @OptionalBinding
+    public void setPlaceholderHeight(Supplier<String> placeholderHeight) {
+        this.placeholderHeight = placeholderHeight;
+    }
+
+    @BindAttribute(name = "suspend-offscreen")
+    @OptionalBinding
+    public void setSuspendOffscreen(BooleanSupplier suspendOffscreen) {
+        this.suspendOffscreen = suspendOffscreen;
+    }
+
+    @Override
+    public void render() {
+        if (container == null) {
+            init();
+        }
+        if (!visible && (child == null || (suspendOffscreen != null && suspendOffscreen.getAsBoolean()))) {
+            stale = true;
+            return;
+        }
+        stale = false;
+        if (child == null) {
+            child = content.create();
+            container.getStyle().removeProperty("min-height");
+            child.render();
+            contentSlot.append(child.getSlot());
+        } else {
+            child.render();
+        }
+    }
+
+    private void init() {
+        container = Window.current().getDocument().createElement("div");
+        if (placeholderHeight != null) {
+            container.getStyle().setProperty("min-height", placeholderHeight.get());
+        }
+        contentSlot = Slot.root(container);
+        getSlot().append(new NodeHolder(container));
+        if (isObserverSupported()) {
+            observer = observe(container, margin != null ? margin.get() : DEFAULT_MARGIN, this::visibilityChanged);
+        } else {
+            visible = true;
+        }
+    }
+
+    private void visibilityChanged(boolean visible) {
+        this.visible = visible;
+        if (visible && stale && observer != null) {
+            Templates.update(this);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (observer != null) {
+            disconnect(observer);
+            observer = null;
+        }
+        if (child != null) {
+            child.destroy();
+            child = null;
+        }
+        super.destroy();
+    }
+
+    @JSBody(script = "return typeof IntersectionObserver !== 'undefined';")
+    private static native boolean isObserverSupported();
+
+    @JSBody(params = { "element", "margin", "listener" }, script = ""
+            + "var observer = new IntersectionObserver(function(entries) {"
+            + "listener(entries[entries.length - 1].isIntersecting);"
+            + "}, { rootMargin: margin });"
+            + "observer.observe(element);"
+            + "return observer;")
+    private static native JSObject observe(HTMLElement element, String margin, VisibilityListener listener);
+
+    @JSBody(params = "observer", script = "observer.disconnect();")
+    private static native void disconnect(JSObject observer);
+
+    @JSFunctor
+    interface VisibilityListener extends JSObject {
+        void changed(boolean visible);
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.components.standard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Supplier;
+import org.teavm.flavour.templates.AbstractComponent;
+import org.teavm.flavour.templates.BindAttribute;
+import org.teavm.flavour.templates.BindContent;
+import org.teavm.flavour.templates.BindElement;
+import org.teavm.flavour.templates.Component;
+import org.teavm.flavour.templates.Fragment;
+import org.teavm.flavour.templates.NodeHolder;
+import org.teavm.flavour.templates.OptionalBinding;
+import org.teavm.flavour.templates.RenderInstrumentation;
+import org.teavm.flavour.templates.Slot;
+import org.teavm.flavour.templates.Templates;
+import org.teavm.jso.browser.Window;
+import org.teavm.jso.dom.events.Event;
+import org.teavm.jso.dom.events.EventListener;
+import org.teavm.jso.dom.html.HTMLElement;
+import org.teavm.jso.dom.xml.Node;
+
+@BindElement(name = "virtual-foreach")
+public class VirtualForEachComponent<T> extends AbstractComponent {
+    private static final int DEFAULT_OVERSCAN = 5;
+    private Supplier<Iterable<T>> collection;
+    private T elementVariable;
+    private int indexVariable;
+    private Fragment body;
+    private Supplier<Integer> rowHeight;
+    private Supplier<Integer> overscan;
+    private Supplier<HTMLElement> container;
+    private Supplier<String> spacerTag;
+    private HTMLElement topSpacer;
+    private HTMLElement bottomSpacer;
+    private NodeHolder bottomHolder;
+    private HTMLElement boundContainer;
+    private Component[] rows = new Component[0];
+    private int rowCount;
+    private int firstIndex;
+    private int topSpacerHeight = -1;
+    private int bottomSpacerHeight = -1;
+    private boolean scrollPending;
+    private Iterable<T> copiedCollection;
+    private int copiedSize;
+    private List<T> copiedItems;
+    private List<T> renderedItems;
+    private EventListener<Event> scrollListener = evt -> scroll();
+
+    public VirtualForEachComponent(Slot slot) {
+        super(slot);
+    }
+
+    @BindAttribute(name = "in")
+    public void setCollection(Supplier<Iterable<T>> collection) {
+        this.collection = collection;
+    }
+
+    @BindAttribute(name = "var")
+    public T getElementVariable() {
+        return elementVariable;
+    }
+
+    @BindAttribute(name = "index")
+    @OptionalBinding
+    public int getIndexVariable() {
+        return indexVariable;
+    }
+
+    @BindAttribute(name = "row-height")
+    public void setRowHeight(Supplier<Integer> rowHeight) {
+        this.rowHeight = rowHeight;
+    }
+
+    @BindAttribute(name = "overscan")
+    @OptionalBinding
+    public void setOverscan(Supplier<Integer> overscan) {
+        this.overscan = overscan;
+    }
+
+    @BindAttribute(name = "container")
+    @OptionalBinding
+    public void setContainer(Supplier<HTMLElement> container) {
+        this.container = container;
+    }
+
+    @BindAttribute(name = "spacer-tag")
+    @OptionalBinding
+    public void setSpacerTag(Supplier<String> spacerTag) {
+        this.spacerTag = spacerTag;
+    }
+
+    @BindContent
+    public void setBody(Fragment body) {
+        this.body = body;
+    }
+
+    @Override
+    public void render() {
+        if (topSpacer == null) {
+            String tagName = spacerTag != null ? spacerTag.get() : defaultSpacerTag(getSlot().getDomParent());
+            topSpacer = Window.current().getDocument().createElement(tagName);
+            bottomSpacer = Window.current().getDocument().createElement(tagName);
+            bottomHolder = new NodeHolder(bottomSpacer);
+            getSlot().append(new NodeHolder(topSpacer));
+            getSlot().append(bottomHolder);
+        }
+        bindContainer(container != null ? container.get() : (HTMLElement) topSpacer.getParentNode());
+
+        // The scroll listener requests the update of this component only, so existing rows may skip re-rendering
+        boolean scrolling = scrollPending;
+        scrollPending = false;
+        List<T> items = getItems(scrolling);
+        renderWindow(items, !scrolling || items != renderedItems);
+        renderedItems = items;
+    }
+
+    private static String defaultSpacerTag(Node parent) {
+        if (parent == null || parent.getNodeType() != Node.ELEMENT_NODE) {
+            return "div";
+        }
+        switch (parent.getNodeName().toLowerCase()) {
+            case "table":
+            case "thead":
+            case "tbody":
+            case "tfoot":
+                return "tr";
+            case "ul":
+            case "ol":
+                return "li";
+            default:
+                return "div";
+        }
+    }
+
+    private void scroll() {
+        scrollPending = true;
+        Templates.update(this);
+    }
+
+    private void renderWindow(List<T> items, boolean force) {
+        int height = Math.max(1, rowHeight.get());
+        int extra = overscan != null ? Math.max(0, overscan.get()) : DEFAULT_OVERSCAN;
+        int size = items.size();
+
+        int start = 0;
+        int visibleRows = 1;
+        if (boundContainer != null) {
+            int offset = (int) (boundContainer.getBoundingClientRect().getTop()
+                    - topSpacer.getBoundingClientRect().getTop());
+            start = Math.max(0, offset / height);
+            visibleRows = (boundContainer.getClientHeight() + height - 1) / height + 1;
+        }
+        int end = Math.min(size, start + visibleRows + extra);
+        start = Math.max(0, Math.min(start - extra, end));
+        if (!force && start == firstIndex && end - start == rowCount) {
+            return;
+        }
+
+        int newCount = end - start;
+        if (rows.length < newCount) {
+            rows = Arrays.copyOf(rows, Math.max(newCount, rows.length * 3 / 2));
+        }
+        for (int i = rowCount - 1; i >= newCount; --i) {
+            rows[i].destroy();
+            rows[i] = null;
+        }
+        for (int i = 0; i < newCount; ++i) {
+            indexVariable = start + i;
+            elementVariable = items.get(start + i);
+            if (i < rowCount) {
+                rows[i].render();
+            } else {
+                Component row = body.create();
+                row.render();
+                getSlot().insertBefore(row.getSlot(), bottomHolder);
+                rows[i] = row;
+            }
+        }
+        rowCount = newCount;
+        firstIndex = start;
+
+        setTopSpacerHeight(start * height);
+        setBottomSpacerHeight((size - end) * height);
+    }
+
+    private void setTopSpacerHeight(int height) {
+        if (topSpacerHeight != height) {
+            topSpacerHeight = height;
+            topSpacer.getStyle().setProperty("height", height + "px");
+            RenderInstrumentation.recordDomMutation();
+        }
+    }
+
+    private void setBottomSpacerHeight(int height) {
+        if (bottomSpacerHeight != height) {
+            bottomSpacerHeight = height;
+            bottomSpacer.getStyle().setProperty("height", height + "px");
+            RenderInstrumentation.recordDomMutation();
+        }
+    }
+
+    private void bindContainer(HTMLElement newContainer) {
+        if (newContainer == boundContainer) {
+            return;
+        }
+        if (boundContainer != null) {
+            boundContainer.removeEventListener("scroll", scrollListener);
+        }
+        boundContainer = newContainer;
+        if (boundContainer != null) {
+            boundContainer.addEventListener("scroll", scrollListener);
+        }
+    }
+
+    private List<T> getItems(boolean reuseCopy) {
+        Iterable<T> items = collection.get();
+        if (items instanceof List<?> && items instanceof RandomAccess) {
+            copiedCollection = null;
+            copiedItems = null;
+            return (List<T>) items;
+        }
+        int size = items instanceof Collection<?> ? ((Collection<?>) items).size() : -1;
+        if (reuseCopy && items == copiedCollection && size == copiedSize) {
+            return copiedItems;
+        }
+        List<T> result = new ArrayList<>();
+        for (T item : items) {
+            result.add(item);
+        }
+        copiedCollection = items;
+        copiedSize = size;
+        copiedItems = result;
+        return result;
+    }
+
+    @Override
+    public void destroy() {
+        bindContainer(null);
+        copiedCollection = null;
+        copiedItems = null;
+        renderedItems = null;
+        for (int i = rowCount - 1; i >= 0; --i) {
+            rows[i].destroy();
+        }
+        super.destroy();
+    }
+}
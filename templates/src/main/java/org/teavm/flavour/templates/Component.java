@@ -17,4 +17,8 @@ package org.teavm.flavour.templates;
 
 public interface Component extends Renderable {
     Slot getSlot();
+
+    default void invalidate() {
+        Templates.invalidate(this);
+    }
 }
@@ -0,0 +1,120 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates;
+
+import java.util.Arrays;
+
+/**
+ * <p>Keeps detached instances of a fragment, together with their DOM, so that they can be re-bound
+ * to new data instead of being created from scratch.</p>
+ */
+public class ComponentPool {
+    private static int totalHitCount;
+    private static int totalMissCount;
+    private Fragment fragment;
+    private int capacity;
+    private Component[] components = new Component[0];
+    private int size;
+    private int hitCount;
+    private int missCount;
+
+    public ComponentPool(Fragment fragment, int capacity) {
+        if (fragment == null) {
+            throw new IllegalArgumentException("Fragment must not be null");
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must be non-negative: " + capacity);
+        }
+        this.fragment = fragment;
+        this.capacity = capacity;
+    }
+
+    public Fragment getFragment() {
+        return fragment;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must be non-negative: " + capacity);
+        }
+        this.capacity = capacity;
+        while (size > capacity) {
+            components[--size].destroy();
+            components[size] = null;
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Component acquire() {
+        if (size > 0) {
+            ++hitCount;
+            ++totalHitCount;
+            Component component = components[--size];
+            components[size] = null;
+            return component;
+        }
+        ++missCount;
+        ++totalMissCount;
+        return fragment.create();
+    }
+
+    public void release(Component component) {
+        if (size >= capacity) {
+            component.destroy();
+            return;
+        }
+        component.getSlot().delete();
+        if (size == components.length) {
+            components = Arrays.copyOf(components, Math.min(capacity, Math.max(4, size * 2)));
+        }
+        components[size++] = component;
+    }
+
+    public void clear() {
+        while (size > 0) {
+            components[--size].destroy();
+            components[size] = null;
+        }
+    }
+
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    public int getMissCount() {
+        return missCount;
+    }
+
+    public static int getTotalHitCount() {
+        return totalHitCount;
+    }
+
+    public static int getTotalMissCount() {
+        return totalMissCount;
+    }
+
+    public static void resetTotalCounts() {
+        totalHitCount = 0;
+        totalMissCount = 0;
+    }
+}
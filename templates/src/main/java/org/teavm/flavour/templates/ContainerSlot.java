@@ -15,7 +15,43 @@
  */
 package org.teavm.flavour.templates;
 
+import org.teavm.jso.browser.Window;
+import org.teavm.jso.core.JSArray;
+import org.teavm.jso.dom.xml.Node;
+
 class ContainerSlot extends Slot {
+    Node anchor;
+
     ContainerSlot() {
+        if (anchorsEnabled) {
+            anchor = Window.current().getDocument().createComment("");
+        }
+    }
+
+    @Override
+    Node getFirstNode() {
+        Node result = super.getFirstNode();
+        return result != null ? result : anchor;
+    }
+
+    @Override
+    Node getLastNode() {
+        return anchor != null ? anchor : super.getLastNode();
+    }
+
+    @Override
+    void getAllNodes(JSArray<Node> nodes) {
+        super.getAllNodes(nodes);
+        if (anchor != null) {
+            nodes.push(anchor);
+        }
+    }
+
+    @Override
+    void deleteDom() {
+        super.deleteDom();
+        if (anchor != null) {
+            anchor.delete();
+        }
     }
 }
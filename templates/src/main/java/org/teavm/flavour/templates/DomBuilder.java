@@ -17,9 +17,11 @@ package org.teavm.flavour.templates;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
-import org.teavm.jso.JSBody;
+import java.util.Set;
 import org.teavm.jso.browser.Window;
 import org.teavm.jso.dom.events.Event;
 import org.teavm.jso.dom.events.EventListener;
@@ -27,13 +29,22 @@ import org.teavm.jso.dom.html.HTMLElement;
 import org.teavm.jso.dom.xml.Document;
 import org.teavm.jso.dom.xml.Element;
 import org.teavm.jso.dom.xml.Node;
+import org.teavm.jso.dom.xml.NodeList;
 import org.teavm.jso.dom.xml.Text;
 
 public class DomBuilder {
+    public static final char TEMPLATE_SEPARATOR = '\0';
+    public static final char TEMPLATE_OPEN = '<';
+    public static final char TEMPLATE_CLOSE = '>';
+    public static final char TEMPLATE_ATTRIBUTE = '@';
+    public static final char TEMPLATE_TEXT = '#';
     private static final Document document = Window.current().getDocument();
+    private static Node[] templatePrototypes = new Node[16];
+    private static boolean cloningEnabled = true;
     private Slot slot;
     private Deque<Item> stack = new ArrayDeque<>();
     private List<Renderable> renderables = new ArrayList<>();
+    private List<String> locations = new ArrayList<>();
 
     public DomBuilder(Slot slot) {
         this.slot = slot;
@@ -48,8 +59,21 @@ public class DomBuilder {
     }
 
     private DomBuilder open(String tagName, boolean slot) {
-        Element elem = document.createElement(tagName);
+        Element elem = null;
         Item item = new Item();
+        if (Hydration.active && Hydration.isAdopting(getParentNode())) {
+            elem = Hydration.adoptElement(tagName);
+            if (elem != null) {
+                Hydration.enter(elem);
+                item.adoptedAttributes = new HashSet<>();
+            } else {
+                Hydration.suspend();
+            }
+            item.hydrating = true;
+        }
+        if (elem == null) {
+            elem = document.createElement(tagName);
+        }
         item.element = elem;
         if (slot) {
             item.slot = Slot.root(elem);
@@ -59,7 +83,20 @@ public class DomBuilder {
     }
 
     public DomBuilder close() {
-        appendNode(stack.pop().element);
+        Item item = stack.peek();
+        if (item.prototype != null) {
+            appendStaticChildren(item, Integer.MAX_VALUE);
+        }
+        stack.pop();
+        if (item.hydrating) {
+            Hydration.leave();
+        }
+        if (item.adoptedAttributes != null) {
+            Hydration.removeAttributesExcept(item.element, item.adoptedAttributes);
+        }
+        if (!item.attached) {
+            appendNode(item.element);
+        }
         return this;
     }
 
@@ -73,11 +110,205 @@ public class DomBuilder {
         if (stack.isEmpty()) {
             throw new IllegalStateException("Can't set attribute to root node");
         }
-        stack.peek().element.setAttribute(name, value);
+        Item item = stack.peek();
+        Element element = item.element;
+        if (item.adoptedAttributes != null) {
+            item.adoptedAttributes.add(name);
+            if (value.equals(element.getAttribute(name))) {
+                return this;
+            }
+        }
+        element.setAttribute(name, value);
+        return this;
+    }
+
+    public static boolean isCloningEnabled() {
+        return cloningEnabled;
+    }
+
+    /**
+     * <p>When disabled, templates passed to {@link #openTemplate(int, String, boolean)} are built node by node
+     * instead of being cloned. Useful to compare both ways of building the same markup.</p>
+     */
+    public static void setCloningEnabled(boolean cloningEnabled) {
+        DomBuilder.cloningEnabled = cloningEnabled;
+    }
+
+    /**
+     * <p>Opens an element by copying its static skeleton, i.e. the element with static attributes, text and
+     * nested elements, but without components. The skeleton is built once per template id and cloned afterwards.
+     * Dynamic parts are filled in by {@link #enter(int, boolean)}, which opens a nested element of the skeleton,
+     * by {@link #add(Component, String, int)}, which puts a component before a child of the skeleton, and by
+     * modifiers. The element is completed by {@link #close()}.</p>
+     *
+     * <p>The template is a sequence of instructions, each starting with one of <code>TEMPLATE_OPEN</code>
+     * (followed by tag name), <code>TEMPLATE_ATTRIBUTE</code> (followed by <code>name=value</code>),
+     * <code>TEMPLATE_TEXT</code> (followed by text) or <code>TEMPLATE_CLOSE</code>, and terminated by
+     * <code>TEMPLATE_SEPARATOR</code>. Children of the skeleton are indexed in the order of the template,
+     * counting both elements and text.</p>
+     */
+    public DomBuilder openTemplate(int id, String template, boolean slot) {
+        Element prototype = (Element) getPrototype(id, template);
+        if (!cloningEnabled || (Hydration.active && Hydration.isAdopting(getParentNode()))) {
+            openFromPrototype(prototype, slot);
+            return this;
+        }
+        Item item = new Item();
+        item.element = (Element) prototype.cloneNode(true);
+        initClonedItem(item, slot);
+        stack.push(item);
+        return this;
+    }
+
+    /**
+     * <p>Appends a static element tree, which is the same as {@link #openTemplate(int, String, boolean)}
+     * immediately followed by {@link #close()}.</p>
+     */
+    public DomBuilder cloneTemplate(int id, String template) {
+        return openTemplate(id, template, false).close();
+    }
+
+    /**
+     * <p>Opens the child element with the given index of the skeleton opened by
+     * {@link #openTemplate(int, String, boolean)}. The element must be closed by {@link #close()}.</p>
+     */
+    public DomBuilder enter(int index, boolean slot) {
+        Item parent = stack.peek();
+        if (parent.prototype != null) {
+            appendStaticChildren(parent, index);
+            parent.staticIndex = index + 1;
+            openFromPrototype((Element) parent.prototype.getChildNodes().get(index), slot);
+            return this;
+        }
+        Item item = new Item();
+        item.element = (Element) (parent.holders != null
+                ? parent.holders[index].getNode()
+                : parent.element.getChildNodes().get(index));
+        item.attached = true;
+        initClonedItem(item, slot);
+        stack.push(item);
         return this;
     }
 
+    private static Node getPrototype(int id, String template) {
+        if (id >= templatePrototypes.length) {
+            templatePrototypes = Arrays.copyOf(templatePrototypes, Math.max(id + 1, templatePrototypes.length * 2));
+        }
+        Node prototype = templatePrototypes[id];
+        if (prototype == null) {
+            prototype = buildPrototype(template);
+            templatePrototypes[id] = prototype;
+        }
+        return prototype;
+    }
+
+    private static void initClonedItem(Item item, boolean slot) {
+        if (!slot) {
+            return;
+        }
+        item.slot = Slot.root(item.element);
+        NodeList<Node> children = item.element.getChildNodes();
+        item.holders = new NodeHolder[children.getLength()];
+        for (int i = 0; i < item.holders.length; ++i) {
+            item.holders[i] = new NodeHolder(children.get(i));
+            item.slot.adopt(item.holders[i]);
+        }
+    }
+
+    private void openFromPrototype(Element prototype, boolean slot) {
+        open(prototype.getTagName(), slot);
+        stack.peek().prototype = prototype;
+        copyAttributes(prototype);
+    }
+
+    private void copyAttributes(Element prototype) {
+        for (int i = 0; i < Hydration.getAttributeCount(prototype); ++i) {
+            String name = Hydration.getAttributeName(prototype, i);
+            attribute(name, prototype.getAttribute(name));
+        }
+    }
+
+    private void appendStaticChildren(Item item, int end) {
+        NodeList<Node> children = item.prototype.getChildNodes();
+        end = Math.min(end, children.getLength());
+        for (int i = item.staticIndex; i < end; ++i) {
+            appendStatic(children.get(i));
+        }
+        item.staticIndex = Math.max(item.staticIndex, end);
+    }
+
+    private void appendStatic(Node prototype) {
+        if (prototype.getNodeType() == Node.TEXT_NODE) {
+            text(prototype.getNodeValue());
+            return;
+        }
+        if (Hydration.active && Hydration.isAdopting(getParentNode())) {
+            Node copy = Hydration.adoptEqual(prototype);
+            appendNode(copy != null ? copy : prototype.cloneNode(true));
+            return;
+        }
+        if (cloningEnabled) {
+            appendNode(prototype.cloneNode(true));
+            return;
+        }
+        Element element = (Element) prototype;
+        open(element.getTagName());
+        copyAttributes(element);
+        NodeList<Node> children = element.getChildNodes();
+        for (int i = 0; i < children.getLength(); ++i) {
+            appendStatic(children.get(i));
+        }
+        close();
+    }
+
+    private static Node buildPrototype(String template) {
+        Deque<Element> elements = new ArrayDeque<>();
+        Node result = null;
+        int index = 0;
+        while (index < template.length()) {
+            int next = template.indexOf(TEMPLATE_SEPARATOR, index);
+            if (next < 0) {
+                throw new IllegalArgumentException("Unterminated template instruction at " + index);
+            }
+            String argument = template.substring(index + 1, next);
+            switch (template.charAt(index)) {
+                case TEMPLATE_OPEN: {
+                    Element element = document.createElement(argument);
+                    if (elements.isEmpty()) {
+                        result = element;
+                    } else {
+                        elements.peek().appendChild(element);
+                    }
+                    elements.push(element);
+                    break;
+                }
+                case TEMPLATE_ATTRIBUTE: {
+                    int separator = argument.indexOf('=');
+                    elements.peek().setAttribute(argument.substring(0, separator), argument.substring(separator + 1));
+                    break;
+                }
+                case TEMPLATE_TEXT:
+                    elements.peek().appendChild(document.createTextNode(argument));
+                    break;
+                case TEMPLATE_CLOSE:
+                    elements.pop();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown template instruction at " + index);
+            }
+            index = next + 1;
+        }
+        if (result == null || !elements.isEmpty()) {
+            throw new IllegalArgumentException("Template must describe exactly one element");
+        }
+        return result;
+    }
+
     public DomBuilder add(Component component) {
+        return add(component, null);
+    }
+
+    public DomBuilder add(Component component, String location) {
         if (stack.isEmpty()) {
             slot.append(component.getSlot());
         } else {
@@ -89,8 +320,27 @@ public class DomBuilder {
                 item.slot.append(component.getSlot());
             }
         }
-        component.render();
+        return register(component, location);
+    }
+
+    /**
+     * <p>Adds a component to the element opened by {@link #openTemplate(int, String, boolean)} or
+     * {@link #enter(int, boolean)} with a slot, right before the skeleton child with the given index.</p>
+     */
+    public DomBuilder add(Component component, String location, int index) {
+        Item item = stack.peek();
+        if (item.prototype != null) {
+            appendStaticChildren(item, index);
+            return add(component, location);
+        }
+        item.slot.insertBefore(component.getSlot(), index < item.holders.length ? item.holders[index] : null);
+        return register(component, location);
+    }
+
+    private DomBuilder register(Component component, String location) {
+        RenderInstrumentation.render(component, location);
         renderables.add(component);
+        locations.add(location);
         return this;
     }
 
@@ -99,34 +349,66 @@ public class DomBuilder {
     }
 
     public DomBuilder add(Modifier modifier) {
+        return add(modifier, null);
+    }
+
+    public DomBuilder add(Modifier modifier, String location) {
         if (stack.isEmpty()) {
             throw new IllegalStateException("Can't apply modifier to root node");
         }
         Renderable renderable = modifier.apply(stack.peek());
         renderables.add(renderable);
+        locations.add(location);
         return this;
     }
 
     private void appendNode(Node node) {
+        RenderInstrumentation.recordDomMutation();
         if (stack.isEmpty()) {
             slot.append(new NodeHolder(node));
         } else {
             Item item = stack.peek();
             if (item.slot == null) {
-                item.element.appendChild(node);
+                if (Hydration.active && Hydration.isAdopting(item.element)) {
+                    Hydration.place(node);
+                } else {
+                    item.element.appendChild(node);
+                }
             } else {
                 item.slot.append(new NodeHolder(node));
             }
         }
     }
 
+    private Node getParentNode() {
+        if (!stack.isEmpty()) {
+            return stack.peek().element;
+        }
+        RootSlot root = slot.getRoot();
+        return root != null ? root.domNode : null;
+    }
+
     public List<Renderable> getRenderables() {
         return renderables;
     }
 
+    /**
+     * <p>Template locations of renderables, in the same order as {@link #getRenderables()}.
+     * Contains <code>null</code> for renderables added without location.</p>
+     */
+    public List<String> getLocations() {
+        return locations;
+    }
+
     static class Item implements ModifierTarget {
         Element element;
         Slot slot;
+        boolean hydrating;
+        boolean attached;
+        Element prototype;
+        int staticIndex;
+        NodeHolder[] holders;
+        Set<String> adoptedAttributes;
         Object valueChangeListeners;
         private EventListener<Event> changeListener;
 
@@ -137,7 +419,7 @@ public class DomBuilder {
 
         @Override
         public void updateValue(String value) {
-            updateValueNative(element, value);
+            DomWriteQueue.setProperty(element, "value", value);
             triggerValueChanged(value);
         }
 
@@ -205,13 +487,7 @@ public class DomBuilder {
 
         @Override
         public String getValue() {
-            return getValueNative(element);
+            return DomWriteQueue.getValue(element);
         }
-
-        @JSBody(params = { "element", "value" }, script = "element.value = value;")
-        private static native void updateValueNative(Element element, String value);
-
-        @JSBody(params = "element", script = "return element.value;")
-        private static native String getValueNative(Element element);
     }
 }
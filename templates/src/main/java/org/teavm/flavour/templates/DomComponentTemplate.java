@@ -15,27 +15,87 @@
  */
 package org.teavm.flavour.templates;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class DomComponentTemplate extends AbstractComponent {
     private DomComponentHandler handler;
     private List<Renderable> renderables;
+    private List<String> locations;
+    private List<ReactiveObserver> observers;
+    private boolean cachingExpressions;
 
     public DomComponentTemplate(DomComponentHandler handler) {
+        this(handler, false);
+    }
+
+    /**
+     * <p>Generated code passes <code>cachingExpressions</code> only for fragments that share expressions
+     * between bindings, so that other fragments don't pay for tracking of active caches.</p>
+     */
+    public DomComponentTemplate(DomComponentHandler handler, boolean cachingExpressions) {
         super(Slot.create());
         this.handler = handler;
+        this.cachingExpressions = cachingExpressions;
     }
 
     @Override
     public void render() {
+        boolean memoizing = MemoCache.inUse;
+        boolean batching = DomWriteQueue.enabled;
+        if (!cachingExpressions && !memoizing && !batching) {
+            renderBindings();
+            return;
+        }
+
+        int cacheMark = cachingExpressions ? ExpressionCache.mark() : -1;
+        if (memoizing) {
+            MemoCache.enterRender();
+        }
+        if (batching) {
+            DomWriteQueue.enter();
+        }
+        try {
+            renderBindings();
+        } finally {
+            if (batching) {
+                DomWriteQueue.exit();
+            }
+            if (memoizing) {
+                MemoCache.exitRender();
+            }
+            if (cachingExpressions) {
+                ExpressionCache.release(cacheMark);
+            }
+        }
+    }
+
+    private void renderBindings() {
         handler.update();
         if (renderables == null) {
             DomBuilder builder = new DomBuilder(getSlot());
             handler.buildDom(builder);
             renderables = builder.getRenderables();
+            locations = builder.getLocations();
+            if (Templates.renderingReactive) {
+                observers = new ArrayList<>(renderables.size());
+                for (int i = 0; i < renderables.size(); ++i) {
+                    observers.add(new ReactiveObserver(renderables.get(i), locations.get(i)));
+                }
+            }
         }
-        for (Renderable renderable : renderables) {
-            renderable.render();
+        if (observers != null) {
+            for (ReactiveObserver observer : observers) {
+                observer.render();
+            }
+        } else if (RenderInstrumentation.enabled) {
+            for (int i = 0; i < renderables.size(); ++i) {
+                RenderInstrumentation.render(renderables.get(i), locations.get(i));
+            }
+        } else {
+            for (Renderable renderable : renderables) {
+                renderable.render();
+            }
         }
     }
 
@@ -46,6 +106,13 @@ public class DomComponentTemplate extends AbstractComponent {
                 renderable.destroy();
             }
             renderables = null;
+            locations = null;
+        }
+        if (observers != null) {
+            for (ReactiveObserver observer : observers) {
+                observer.dispose();
+            }
+            observers = null;
         }
         super.destroy();
     }
@@ -0,0 +1,212 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.core.JSArray;
+import org.teavm.jso.dom.xml.Element;
+import org.teavm.jso.dom.xml.Node;
+
+/**
+ * <p>Defers attribute, property, class, style and text writes made by components during a render pass
+ * and applies them in one go when the outermost template finishes rendering, so that writes don't interleave
+ * with reads that force layout. A target written several times in one pass is written once, with the last value.
+ * Outside of a render pass, or when batching is disabled, writes are applied immediately.</p>
+ */
+public final class DomWriteQueue {
+    private static final int ATTRIBUTE = 0;
+    private static final int REMOVED_ATTRIBUTE = 1;
+    private static final int PROPERTY = 2;
+    private static final int TEXT = 3;
+    private static final int CLASS = 4;
+    private static final int STYLE = 5;
+    // Pending writes are kept in a JS object on their node, keyed by kind and name. Removal of an attribute
+    // shares the key with setting it. A node is added to the pending list when it gets its first write.
+    private static final String QUEUE_SCRIPT = ""
+            + "var writes = node.$$flavourWrites$$;"
+            + "if (!writes) {"
+            + "writes = {};"
+            + "node.$$flavourWrites$$ = writes;"
+            + "pending.push(node);"
+            + "}"
+            + "var key = (kind === 1 ? 0 : kind) + name;"
+            + "var coalesced = key in writes;"
+            + "writes[key] = [kind, name, value];"
+            + "return coalesced;";
+    private static final String APPLY_SCRIPT = ""
+            + "switch (kind) {"
+            + "case 0: node.setAttribute(name, value); break;"
+            + "case 1: node.removeAttribute(name); break;"
+            + "case 2: node[name] = value; break;"
+            + "case 3: node.nodeValue = value; break;"
+            + "case 4: if (value) { node.classList.add(name); } else { node.classList.remove(name); } break;"
+            + "case 5: if (value !== null) { node.style.setProperty(name, value); } "
+            + "else { node.style.removeProperty(name); } break;"
+            + "}";
+    static boolean enabled;
+    private static int depth;
+    private static JSArray<Node> pendingNodes = JSArray.create();
+    private static int appliedWriteCount;
+    private static int coalescedWriteCount;
+
+    private DomWriteQueue() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        if (!enabled) {
+            flush();
+        }
+        DomWriteQueue.enabled = enabled;
+    }
+
+    public static void setAttribute(Element element, String name, String value) {
+        write(element, ATTRIBUTE, name, value);
+    }
+
+    public static void removeAttribute(Element element, String name) {
+        write(element, REMOVED_ATTRIBUTE, name, null);
+    }
+
+    public static void setProperty(Element element, String name, String value) {
+        write(element, PROPERTY, name, value);
+    }
+
+    public static void setProperty(Element element, String name, boolean value) {
+        if (!enabled || depth == 0) {
+            ++appliedWriteCount;
+            applyNative(element, PROPERTY, name, value);
+        } else if (queueNative(pendingNodes, element, PROPERTY, name, value)) {
+            ++coalescedWriteCount;
+        }
+    }
+
+    /**
+     * <p>Adds the class to the element or removes it, leaving other classes untouched.</p>
+     */
+    public static void setClass(Element element, String className, boolean present) {
+        if (!enabled || depth == 0) {
+            ++appliedWriteCount;
+            applyNative(element, CLASS, className, present);
+        } else if (queueNative(pendingNodes, element, CLASS, className, present)) {
+            ++coalescedWriteCount;
+        }
+    }
+
+    /**
+     * <p>Sets an inline style property of the element, or removes it when the value is <code>null</code>.</p>
+     */
+    public static void setStyle(Element element, String property, String value) {
+        write(element, STYLE, property, value);
+    }
+
+    public static void setText(Node node, String text) {
+        write(node, TEXT, "", text);
+    }
+
+    /**
+     * <p>Reads the <code>value</code> property of an element, taking into account a write that was not
+     * applied yet.</p>
+     */
+    public static String getValue(Element element) {
+        return getValueNative(element);
+    }
+
+    public static int getAppliedWriteCount() {
+        return appliedWriteCount;
+    }
+
+    /**
+     * <p>Number of writes that were dropped because the same target was written again in the same pass.</p>
+     */
+    public static int getCoalescedWriteCount() {
+        return coalescedWriteCount;
+    }
+
+    public static void resetStatistics() {
+        appliedWriteCount = 0;
+        coalescedWriteCount = 0;
+    }
+
+    static void enter() {
+        ++depth;
+    }
+
+    static void exit() {
+        if (--depth == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * <p>Applies pending writes immediately.</p>
+     */
+    public static void flush() {
+        if (pendingNodes.getLength() == 0) {
+            return;
+        }
+        JSArray<Node> nodes = pendingNodes;
+        pendingNodes = JSArray.create();
+        for (int i = 0; i < nodes.getLength(); ++i) {
+            appliedWriteCount += applyPendingNative(nodes.get(i));
+        }
+    }
+
+    private static void write(Node target, int kind, String name, String value) {
+        if (!enabled || depth == 0) {
+            ++appliedWriteCount;
+            applyNative(target, kind, name, value);
+        } else if (queueNative(pendingNodes, target, kind, name, value)) {
+            ++coalescedWriteCount;
+        }
+    }
+
+    @JSBody(params = { "pending", "node", "kind", "name", "value" }, script = QUEUE_SCRIPT)
+    private static native boolean queueNative(JSArray<Node> pending, Node node, int kind, String name, String value);
+
+    @JSBody(params = { "pending", "node", "kind", "name", "value" }, script = QUEUE_SCRIPT)
+    private static native boolean queueNative(JSArray<Node> pending, Node node, int kind, String name, boolean value);
+
+    @JSBody(params = { "node", "kind", "name", "value" }, script = APPLY_SCRIPT)
+    private static native void applyNative(Node node, int kind, String name, String value);
+
+    @JSBody(params = { "node", "kind", "name", "value" }, script = APPLY_SCRIPT)
+    private static native void applyNative(Node node, int kind, String name, boolean value);
+
+    @JSBody(params = "node", script = ""
+            + "var writes = node.$$flavourWrites$$;"
+            + "node.$$flavourWrites$$ = null;"
+            + "var count = 0;"
+            + "for (var key in writes) {"
+            + "var write = writes[key];"
+            + "var kind = write[0];"
+            + "var name = write[1];"
+            + "var value = write[2];"
+            + APPLY_SCRIPT
+            + "++count;"
+            + "}"
+            + "return count;")
+    private static native int applyPendingNative(Node node);
+
+    @JSBody(params = "element", script = ""
+            + "var writes = element.$$flavourWrites$$;"
+            + "var write = writes ? writes['2value'] : undefined;"
+            + "return write ? write[2] : element.value;")
+    private static native String getValueNative(Element element);
+}
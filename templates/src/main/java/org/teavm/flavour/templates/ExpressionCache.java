@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Holds the value of an expression shared by several bindings of a template fragment. The value is
+ * computed by the first binding that reads it during a render of the fragment and reused by the others.
+ * Outside of a render, for example in event handlers, the expression is always computed anew.
+ * Instances are created by generated template code.</p>
+ */
+public final class ExpressionCache {
+    private static List<ExpressionCache> activeCaches = new ArrayList<>();
+    private Object value;
+    private boolean valid;
+    private boolean active;
+
+    public void activate() {
+        value = null;
+        valid = false;
+        if (!active) {
+            active = true;
+            activeCaches.add(this);
+        }
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public Object store(Object value) {
+        if (active) {
+            this.value = value;
+            valid = true;
+        }
+        return value;
+    }
+
+    static int mark() {
+        return activeCaches.size();
+    }
+
+    static void release(int mark) {
+        while (activeCaches.size() > mark) {
+            ExpressionCache cache = activeCaches.remove(activeCaches.size() - 1);
+            cache.active = false;
+            cache.valid = false;
+            cache.value = null;
+        }
+    }
+}
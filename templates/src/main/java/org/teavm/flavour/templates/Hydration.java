@@ -0,0 +1,202 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.teavm.jso.JSBody;
+import org.teavm.jso.dom.xml.Element;
+import org.teavm.jso.dom.xml.Node;
+import org.teavm.jso.dom.xml.Text;
+
+/**
+ * <p>Cursor over pre-rendered markup, used during the initial render performed by
+ * {@link Templates#hydrate(Object, org.teavm.jso.dom.html.HTMLElement)}. Nodes are requested
+ * in document order; matching nodes are adopted, mismatching ones are removed and replaced by newly created
+ * nodes. Comments are treated as separators between adjacent text nodes and removed.</p>
+ */
+final class Hydration {
+    static boolean active;
+    static int adoptedNodeCount;
+    static int mismatchCount;
+    private static Node parent;
+    private static Node next;
+    private static List<Node> stack = new ArrayList<>();
+
+    private Hydration() {
+    }
+
+    static void start(Node root) {
+        active = true;
+        adoptedNodeCount = 0;
+        mismatchCount = 0;
+        parent = root;
+        next = root.getFirstChild();
+    }
+
+    static void finish() {
+        if (stack.isEmpty() && parent != null) {
+            removeRemaining();
+        }
+        active = false;
+        parent = null;
+        next = null;
+        stack.clear();
+    }
+
+    static boolean isAdopting(Node domParent) {
+        return parent != null && parent == domParent;
+    }
+
+    static Element adoptElement(String tagName) {
+        skipSeparators();
+        if (next != null && next.getNodeType() == Node.ELEMENT_NODE
+                && ((Element) next).getTagName().equalsIgnoreCase(tagName)) {
+            return (Element) adoptNext();
+        }
+        replaceNext();
+        return null;
+    }
+
+    static Node adoptEqual(Node prototype) {
+        skipSeparators();
+        if (next != null && isEqualNode(next, prototype)) {
+            return adoptNext();
+        }
+        replaceNext();
+        return null;
+    }
+
+    static Text adoptText(String text) {
+        if (text.isEmpty()) {
+            return null;
+        }
+        skipSeparators();
+        if (next == null || next.getNodeType() != Node.TEXT_NODE) {
+            ++mismatchCount;
+            return null;
+        }
+        Text result = (Text) adoptNext();
+        if (!result.getData().equals(text)) {
+            result.setData(text);
+            ++mismatchCount;
+        }
+        return result;
+    }
+
+    /**
+     * <p>Puts a node at the cursor position, unless it was adopted before, and returns the node that ended up
+     * in the document. A new text node is replaced by the pre-rendered one, if there is any.</p>
+     */
+    static Node place(Node node) {
+        if (node.getParentNode() == parent) {
+            return node;
+        }
+        if (node.getNodeType() == Node.TEXT_NODE) {
+            Text adopted = adoptText(((Text) node).getData());
+            if (adopted != null) {
+                return adopted;
+            }
+        }
+        insert(node);
+        return node;
+    }
+
+    static void insert(Node node) {
+        if (node.getParentNode() != parent) {
+            RenderInstrumentation.recordDomMutation();
+            parent.insertBefore(node, next);
+        }
+    }
+
+    static void enter(Element element) {
+        stack.add(parent);
+        stack.add(next);
+        parent = element;
+        next = element.getFirstChild();
+    }
+
+    static void suspend() {
+        stack.add(parent);
+        stack.add(next);
+        parent = null;
+        next = null;
+    }
+
+    static void leave() {
+        if (parent != null) {
+            removeRemaining();
+        }
+        next = stack.remove(stack.size() - 1);
+        parent = stack.remove(stack.size() - 1);
+    }
+
+    /**
+     * <p>Removes attributes of an adopted element that came with pre-rendered markup, but were not set
+     * by the template. Attributes written later by modifiers are restored on their first render.</p>
+     */
+    static void removeAttributesExcept(Element element, Set<String> names) {
+        for (int i = getAttributeCount(element) - 1; i >= 0; --i) {
+            String name = getAttributeName(element, i);
+            if (!names.contains(name)) {
+                RenderInstrumentation.recordDomMutation();
+                element.removeAttribute(name);
+            }
+        }
+    }
+
+    private static Node adoptNext() {
+        Node result = next;
+        next = next.getNextSibling();
+        ++adoptedNodeCount;
+        return result;
+    }
+
+    private static void replaceNext() {
+        ++mismatchCount;
+        if (next != null) {
+            Node mismatch = next;
+            next = next.getNextSibling();
+            mismatch.delete();
+        }
+    }
+
+    private static void skipSeparators() {
+        while (next != null && next.getNodeType() == Node.COMMENT_NODE) {
+            Node separator = next;
+            next = next.getNextSibling();
+            separator.delete();
+        }
+    }
+
+    private static void removeRemaining() {
+        skipSeparators();
+        while (next != null) {
+            replaceNext();
+            skipSeparators();
+        }
+    }
+
+    @JSBody(params = "element", script = "return element.attributes.length;")
+    static native int getAttributeCount(Element element);
+
+    @JSBody(params = { "element", "index" }, script = "return element.attributes[index].name;")
+    static native String getAttributeName(Element element, int index);
+
+    @JSBody(params = { "node", "other" }, script = "return node.isEqualNode(other);")
+    private static native boolean isEqualNode(Node node, Node other);
+}
@@ -0,0 +1,110 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * <p>Caches results of a getter marked with {@link org.teavm.flavour.expr.Memo} at a single call site of
+ * a template. During a render pass results are also shared between call sites through a per-pass table,
+ * which is dropped as soon as the outermost template finishes rendering. Outside of a render the getter
+ * is always called. Instances are created by generated template code.</p>
+ */
+public final class MemoCache {
+    static boolean inUse;
+    private static int renderDepth;
+    private static Map<Object, Map<String, Object>> passValues = new IdentityHashMap<>();
+    private Object cachedInstance;
+    private String cachedMethod;
+    private Object[] cachedDependencies;
+    private Object cachedValue;
+    private boolean hasCachedValue;
+    private Object instance;
+    private String method;
+    private Object[] dependencies;
+    private Object result;
+
+    public MemoCache() {
+        // Until the first cache is created, templates don't need to track render passes
+        inUse = true;
+    }
+
+    public boolean lookup(Object instance, String method) {
+        this.instance = instance;
+        this.method = method;
+        dependencies = null;
+        result = null;
+        if (renderDepth == 0) {
+            return false;
+        }
+        Map<String, Object> values = passValues.get(instance);
+        if (values == null || !values.containsKey(method)) {
+            return false;
+        }
+        result = values.get(method);
+        return true;
+    }
+
+    public boolean matches(Object[] dependencies) {
+        if (renderDepth == 0) {
+            return false;
+        }
+        this.dependencies = dependencies;
+        if (dependencies == null || !hasCachedValue || cachedInstance != instance || !cachedMethod.equals(method)
+                || !Arrays.equals(dependencies, cachedDependencies)) {
+            return false;
+        }
+        result = cachedValue;
+        recordPassValue(result);
+        return true;
+    }
+
+    public Object getValue() {
+        return result;
+    }
+
+    public Object store(Object value) {
+        if (renderDepth > 0) {
+            cachedInstance = instance;
+            cachedMethod = method;
+            cachedDependencies = dependencies;
+            cachedValue = value;
+            hasCachedValue = true;
+            recordPassValue(value);
+        }
+        instance = null;
+        dependencies = null;
+        result = null;
+        return value;
+    }
+
+    private void recordPassValue(Object value) {
+        passValues.computeIfAbsent(instance, k -> new HashMap<>()).put(method, value);
+    }
+
+    static void enterRender() {
+        ++renderDepth;
+    }
+
+    static void exitRender() {
+        if (--renderDepth == 0) {
+            passValues.clear();
+        }
+    }
+}
@@ -25,6 +25,10 @@ public class NodeHolder extends Space {
         this.node = node;
     }
 
+    public Node getNode() {
+        return node;
+    }
+
     @Override
     Node getFirstNode() {
         return node;
@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>Holds a primitive supplier bound to a component together with the bits of the last computed value,
+ * so that components can compare primitive values without boxing them.</p>
+ */
+public final class PrimitiveValue {
+    private IntSupplier intSupplier;
+    private LongSupplier longSupplier;
+    private DoubleSupplier doubleSupplier;
+    private BooleanSupplier booleanSupplier;
+    private long cachedBits;
+    private boolean bitsCached;
+    private String text;
+
+    public void set(IntSupplier supplier) {
+        intSupplier = supplier;
+    }
+
+    public void set(LongSupplier supplier) {
+        longSupplier = supplier;
+    }
+
+    public void set(DoubleSupplier supplier) {
+        doubleSupplier = supplier;
+    }
+
+    public void set(BooleanSupplier supplier) {
+        booleanSupplier = supplier;
+    }
+
+    public boolean isBound() {
+        return intSupplier != null || longSupplier != null || doubleSupplier != null || booleanSupplier != null;
+    }
+
+    /**
+     * <p>Computes the value and tells whether it differs from the previously computed one.
+     * The string representation of the new value is available via {@link #getText()}.</p>
+     */
+    public boolean update() {
+        if (intSupplier != null) {
+            int value = intSupplier.getAsInt();
+            if (!changed(value)) {
+                return false;
+            }
+            text = Integer.toString(value);
+        } else if (longSupplier != null) {
+            long value = longSupplier.getAsLong();
+            if (!changed(value)) {
+                return false;
+            }
+            text = Long.toString(value);
+        } else if (doubleSupplier != null) {
+            double value = doubleSupplier.getAsDouble();
+            if (!changed(Double.doubleToLongBits(value))) {
+                return false;
+            }
+            text = Double.toString(value);
+        } else {
+            boolean value = booleanSupplier.getAsBoolean();
+            if (!changed(value ? 1 : 0)) {
+                return false;
+            }
+            text = Boolean.toString(value);
+        }
+        return true;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    private boolean changed(long bits) {
+        if (bitsCached && cachedBits == bits) {
+            return false;
+        }
+        bitsCached = true;
+        cachedBits = bits;
+        return true;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class ReactiveObserver {
+    private static ReactiveObserver current;
+    private static int lastEpoch;
+    private Renderable renderable;
+    private String location;
+    private List<Signal<?>> sources = new ArrayList<>();
+    boolean dirty;
+    private boolean disposed;
+    private int epoch;
+
+    ReactiveObserver(Renderable renderable, String location) {
+        this.renderable = renderable;
+        this.location = location;
+    }
+
+    static void track(Signal<?> signal) {
+        // Each render gets a new epoch, so a signal read again during the same render is skipped in O(1).
+        // A signal read by an outer observer both before and after a nested observer is added twice, which is
+        // harmless, since both entries are removed by clearSources.
+        if (current != null && signal.trackingEpoch != current.epoch) {
+            signal.trackingEpoch = current.epoch;
+            current.sources.add(signal);
+            signal.addObserver(current);
+        }
+    }
+
+    void render() {
+        if (disposed) {
+            return;
+        }
+        clearSources();
+        dirty = false;
+        epoch = ++lastEpoch;
+        ReactiveObserver previous = current;
+        current = this;
+        try {
+            RenderInstrumentation.render(renderable, location);
+        } finally {
+            current = previous;
+        }
+    }
+
+    void invalidate() {
+        if (!dirty && !disposed) {
+            dirty = true;
+            Templates.enqueueObserver(this);
+        }
+    }
+
+    void dispose() {
+        disposed = true;
+        clearSources();
+    }
+
+    private void clearSources() {
+        for (Signal<?> source : sources) {
+            source.removeObserver(this);
+        }
+        sources.clear();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.teavm.jso.browser.Performance;
+
+public final class RenderInstrumentation {
+    static boolean enabled;
+    private static int mutationCount;
+    static Map<String, RenderStatistics> byClass = new LinkedHashMap<>();
+    static Map<String, RenderStatistics> byLocation = new LinkedHashMap<>();
+
+    private RenderInstrumentation() {
+    }
+
+    /**
+     * <p>Should be called by components each time they change the DOM, so that renders can be told apart
+     * from no-op renders.</p>
+     */
+    public static void recordDomMutation() {
+        ++mutationCount;
+    }
+
+    static void render(Renderable renderable, String location) {
+        if (!enabled) {
+            renderable.render();
+            return;
+        }
+
+        int mutationsBefore = mutationCount;
+        double start = Performance.now();
+        try {
+            renderable.render();
+        } finally {
+            double time = Performance.now() - start;
+            int mutations = mutationCount - mutationsBefore;
+            record(byClass, renderable.getClass().getName(), time, mutations);
+            if (location != null) {
+                record(byLocation, location, time, mutations);
+            }
+        }
+    }
+
+    private static void record(Map<String, RenderStatistics> map, String key, double time, int mutations) {
+        RenderStatistics statistics = map.get(key);
+        if (statistics == null) {
+            statistics = new RenderStatistics(key);
+            map.put(key, statistics);
+        }
+        statistics.renderCount++;
+        statistics.totalTime += time;
+        statistics.mutationCount += mutations;
+        if (mutations == 0) {
+            statistics.noOpRenderCount++;
+        }
+    }
+
+    static void reset() {
+        byClass.clear();
+        byLocation.clear();
+    }
+}
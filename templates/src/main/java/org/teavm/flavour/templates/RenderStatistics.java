@@ -0,0 +1,63 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates;
+
+public final class RenderStatistics {
+    private String name;
+    int renderCount;
+    double totalTime;
+    int mutationCount;
+    int noOpRenderCount;
+
+    RenderStatistics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * <p>Either the component class name or the template location in form <code>file:line</code>.</p>
+     */
+    public String getName() {
+        return name;
+    }
+
+    public int getRenderCount() {
+        return renderCount;
+    }
+
+    /**
+     * <p>Cumulative render time in milliseconds, including time spent in nested components.</p>
+     */
+    public double getTotalTime() {
+        return totalTime;
+    }
+
+    public int getMutationCount() {
+        return mutationCount;
+    }
+
+    /**
+     * <p>Number of renders that did not touch the DOM, neither directly nor through nested components.</p>
+     */
+    public int getNoOpRenderCount() {
+        return noOpRenderCount;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + renderCount + " renders (" + noOpRenderCount + " no-op), " + totalTime + " ms, "
+                + mutationCount + " DOM mutations";
+    }
+}
@@ -19,6 +19,7 @@ import org.teavm.jso.dom.xml.Node;
 
 class RootSlot extends Slot {
     Node domNode;
+    boolean reactive;
 
     RootSlot(Node domNode) {
         this.domNode = domNode;
@@ -0,0 +1,75 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p>Observable value for reactive templates. Bindings that read a signal while rendering are re-rendered
+ * when the signal is written, see {@link Templates#setReactive(boolean)}.</p>
+ */
+public class Signal<T> {
+    private T value;
+    private List<ReactiveObserver> observers;
+    int trackingEpoch;
+
+    public Signal() {
+    }
+
+    public Signal(T value) {
+        this.value = value;
+    }
+
+    public T get() {
+        ReactiveObserver.track(this);
+        return value;
+    }
+
+    public void set(T value) {
+        if (Objects.equals(this.value, value)) {
+            return;
+        }
+        this.value = value;
+        notifyChanged();
+    }
+
+    /**
+     * <p>Re-renders dependent bindings, for example after the contents of a mutable value were changed.</p>
+     */
+    public void notifyChanged() {
+        if (observers == null || observers.isEmpty()) {
+            return;
+        }
+        for (ReactiveObserver observer : observers.toArray(new ReactiveObserver[observers.size()])) {
+            observer.invalidate();
+        }
+    }
+
+    void addObserver(ReactiveObserver observer) {
+        if (observers == null) {
+            observers = new ArrayList<>();
+        }
+        observers.add(observer);
+    }
+
+    void removeObserver(ReactiveObserver observer) {
+        if (observers != null) {
+            observers.remove(observer);
+        }
+    }
+}
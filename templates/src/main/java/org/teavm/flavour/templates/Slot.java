@@ -16,9 +16,11 @@
 package org.teavm.flavour.templates;
 
 import org.teavm.jso.core.JSArray;
+import org.teavm.jso.dom.xml.DocumentFragment;
 import org.teavm.jso.dom.xml.Node;
 
 public abstract class Slot extends Space {
+    static boolean anchorsEnabled;
     Space first;
     Space last;
 
@@ -37,6 +39,53 @@ public abstract class Slot extends Space {
             throw new IllegalArgumentException("Successor does not belong to this slot");
         }
 
+        link(space, successor);
+
+        RootSlot root = getRoot();
+        if (root == null) {
+            return;
+        }
+
+        if (successor == null && Hydration.active && Hydration.isAdopting(root.domNode)) {
+            if (space instanceof NodeHolder) {
+                NodeHolder holder = (NodeHolder) space;
+                holder.node = Hydration.place(holder.node);
+            } else {
+                JSArray<Node> domNodes = JSArray.create();
+                space.getAllNodes(domNodes);
+                for (int i = 0; i < domNodes.getLength(); ++i) {
+                    Hydration.insert(domNodes.get(i));
+                }
+            }
+            return;
+        }
+
+        JSArray<Node> domNodes = JSArray.create();
+        space.getAllNodes(domNodes);
+        if (domNodes.getLength() == 0) {
+            return;
+        }
+        RenderInstrumentation.recordDomMutation();
+        Node successorDomNode = findSuccessorDomNode(space, successor);
+        if (domNodes.getLength() == 1) {
+            root.domNode.insertBefore(domNodes.get(0), successorDomNode);
+        } else {
+            DocumentFragment fragment = root.domNode.getOwnerDocument().createDocumentFragment();
+            for (int i = 0; i < domNodes.getLength(); ++i) {
+                fragment.appendChild(domNodes.get(i));
+            }
+            root.domNode.insertBefore(fragment, successorDomNode);
+        }
+    }
+
+    /**
+     * <p>Adds a space whose DOM nodes are already in place, like children of a cloned element.</p>
+     */
+    void adopt(Space space) {
+        link(space, null);
+    }
+
+    private void link(Space space, Space successor) {
         space.parent = this;
         if (successor == null) {
             space.previous = last;
@@ -60,34 +109,65 @@ public abstract class Slot extends Space {
                 first = space;
             }
         }
+    }
 
-        RootSlot root = getRoot();
-        if (root == null) {
-            return;
+    private Node findSuccessorDomNode(Space space, Space successor) {
+        if (successor != null && space.previous != null && hasCheapLastNode(space.previous)) {
+            Node previousDomNode = space.previous.getLastNode();
+            if (previousDomNode != null) {
+                Node sibling = previousDomNode.getNextSibling();
+                // When the space is being moved, its own nodes may still follow its former predecessor
+                if (sibling == null || sibling != space.getFirstNode()) {
+                    return sibling;
+                }
+            }
         }
+        Node result = findFirstNode(successor);
+        return result != null ? result : findNodeAfter(this);
+    }
 
-        JSArray<Node> domNodes = JSArray.create();
-        space.getAllNodes(domNodes);
-        if (domNodes.getLength() == 0) {
-            return;
+    private static boolean hasCheapLastNode(Space space) {
+        return space instanceof NodeHolder
+                || (space instanceof ContainerSlot && ((ContainerSlot) space).anchor != null);
+    }
+
+    private static Node findFirstNode(Space space) {
+        for (; space != null; space = space.next) {
+            Node result = space.getFirstNode();
+            if (result != null) {
+                return result;
+            }
         }
-        Node successorDomNode;
-        if (successor != null) {
-            successorDomNode = successor.getFirstNode();
-        } else {
-            Space ancestor = this;
-            successorDomNode = null;
-            while (ancestor != null) {
-                if (ancestor.next != null) {
-                    successorDomNode = ancestor.next.getFirstNode();
-                    break;
-                }
-                ancestor = ancestor.parent;
+        return null;
+    }
+
+    private static Node findNodeAfter(Slot slot) {
+        Space ancestor = slot;
+        while (ancestor != null) {
+            if (ancestor instanceof ContainerSlot && ((ContainerSlot) ancestor).anchor != null) {
+                return ((ContainerSlot) ancestor).anchor;
+            }
+            Node result = findFirstNode(ancestor.next);
+            if (result != null) {
+                return result;
             }
+            ancestor = ancestor.parent;
+        }
+        return null;
+    }
+
+    public void moveBefore(Space space, Space successor) {
+        if (space.getParent() != this) {
+            throw new IllegalArgumentException("The given space is not hosted by this slot");
+        }
+        if (space == successor) {
+            throw new IllegalArgumentException("Can't move space before itself");
         }
-        for (int i = 0; i < domNodes.getLength(); ++i) {
-            root.domNode.insertBefore(domNodes.get(i), successorDomNode);
+        if (space.next == successor) {
+            return;
         }
+        space.unlink();
+        insertBefore(space, successor);
     }
 
     @Override
@@ -132,6 +212,20 @@ public abstract class Slot extends Space {
         }
     }
 
+    public static boolean isAnchorsEnabled() {
+        return anchorsEnabled;
+    }
+
+    /**
+     * <p>When enabled, slots created afterwards own an empty comment node that marks their end.
+     * This costs an extra DOM node per slot, but lets insertions find their position in constant time
+     * instead of traversing sibling and ancestor slots. The setting is captured by each slot when it is created,
+     * so slots with and without anchors may coexist.</p>
+     */
+    public static void setAnchorsEnabled(boolean anchorsEnabled) {
+        Slot.anchorsEnabled = anchorsEnabled;
+    }
+
     public static Slot create() {
         return new ContainerSlot();
     }
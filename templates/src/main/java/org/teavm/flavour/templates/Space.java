@@ -36,6 +36,15 @@ public abstract class Space {
 
     abstract void getAllNodes(JSArray<Node> nodes);
 
+    /**
+     * <p>Returns the DOM node this space is rendered into, or <code>null</code> if the space
+     * is not attached to a root slot yet.</p>
+     */
+    public Node getDomParent() {
+        RootSlot root = getRoot();
+        return root != null ? root.domNode : null;
+    }
+
     public Space getPrevious() {
         return previous;
     }
@@ -49,30 +58,25 @@ public abstract class Space {
             return;
         }
 
+        RenderInstrumentation.recordDomMutation();
         deleteDom();
+        unlink();
+    }
 
-        Space newPrevious = previous;
-        if (newPrevious != null) {
-            newPrevious = newPrevious.previous;
+    void unlink() {
+        if (previous != null) {
+            previous.next = next;
         } else {
             parent.first = next;
         }
-        Space newNext = next;
-        if (newNext != null) {
-            newNext = newNext.next;
+        if (next != null) {
+            next.previous = previous;
         } else {
-            parent.previous = previous;
-        }
-
-        if (newPrevious != null) {
-            newPrevious.next = newNext;
-        }
-        if (newNext != null) {
-            newNext.previous = newPrevious;
+            parent.last = previous;
         }
 
-        next = newNext;
-        previous = newPrevious;
+        next = null;
+        previous = null;
         parent = null;
     }
 
@@ -15,9 +15,17 @@
  */
 package org.teavm.flavour.templates;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import org.teavm.flavour.templates.emitting.TemplatingProxyGenerator;
+import org.teavm.jso.browser.Performance;
 import org.teavm.jso.browser.Window;
 import org.teavm.jso.dom.html.HTMLElement;
 import org.teavm.metaprogramming.CompileTime;
@@ -29,6 +37,25 @@ import org.teavm.metaprogramming.Value;
 public final class Templates {
     private static boolean updating;
     private static List<RootComponent> rootComponents = new ArrayList<>();
+    private static boolean scopedUpdates;
+    private static Set<Component> dirtyComponents = new LinkedHashSet<>();
+    private static UpdateScheduling updateScheduling = UpdateScheduling.IMMEDIATE;
+    private static boolean flushScheduled;
+    private static boolean fullUpdateRequested;
+    private static int requestedUpdateCount;
+    private static int performedUpdateCount;
+    private static boolean reactive;
+    static boolean renderingReactive;
+    private static List<ReactiveObserver> dirtyObservers = new ArrayList<>();
+    private static boolean timeSlicing;
+    private static double frameBudget = 8;
+    private static boolean slicing;
+    private static double sliceStart;
+    private static Deque<Runnable> deferredRenders = new ArrayDeque<>();
+    private static boolean continuationScheduled;
+    private static int frameCount;
+    private static int lastUpdateFrameCount;
+    private static boolean detachedRendering;
 
     private Templates() {
     }
@@ -44,13 +71,83 @@ public final class Templates {
         rootComponents.add(component);
         updating = true;
         try {
+            if (detachedRendering) {
+                component.render();
+                component.attach();
+            } else {
+                component.attach();
+                component.render();
+            }
+            return component;
+        } finally {
+            updating = false;
+        }
+    }
+
+    public static Component hydrate(Object model, String id) {
+        return hydrate(model, Window.current().getDocument().getElementById(id));
+    }
+
+    /**
+     * <p>Like {@link #bind(Object, HTMLElement)}, but reuses markup already present in the element, usually
+     * produced by {@link org.teavm.flavour.templates.server.ServerRenderer} in hydratable mode. Nodes that
+     * match the template are adopted instead of being created; on mismatch the pre-rendered node is dropped and
+     * rebuilt. Slot anchors are not created for slots built during hydration.</p>
+     */
+    public static Component hydrate(Object model, HTMLElement element) {
+        Fragment fragment = create(model);
+        boolean anchorsEnabled = Slot.anchorsEnabled;
+        Slot.anchorsEnabled = false;
+        updating = true;
+        Hydration.start(element);
+        try {
+            Slot root = Slot.root(element);
+            RootComponent component = new RootComponent(root, fragment.create());
+            rootComponents.add(component);
+            component.attach();
             component.render();
             return component;
         } finally {
+            Hydration.finish();
+            Slot.anchorsEnabled = anchorsEnabled;
             updating = false;
         }
     }
 
+    public static boolean isDetachedRendering() {
+        return detachedRendering;
+    }
+
+    /**
+     * <p>When enabled, {@link #bind(Object, HTMLElement)} renders the template before attaching it to the element,
+     * so the whole tree is inserted into the document at once instead of node by node. Content created by
+     * <code>std:if</code> and <code>std:insert</code> is rendered the same way. Components that measure
+     * their own layout during the first render, like <code>std:virtual-foreach</code> without an explicit
+     * container, get correct measurements only on the next render in this mode.</p>
+     */
+    public static void setDetachedRendering(boolean detachedRendering) {
+        Templates.detachedRendering = detachedRendering;
+    }
+
+    public static boolean isHydrating() {
+        return Hydration.active;
+    }
+
+    /**
+     * <p>Number of pre-rendered nodes adopted by the last call to {@link #hydrate(Object, HTMLElement)}.</p>
+     */
+    public static int getHydratedNodeCount() {
+        return Hydration.adoptedNodeCount;
+    }
+
+    /**
+     * <p>Number of pre-rendered nodes that did not match the template during the last call
+     * to {@link #hydrate(Object, HTMLElement)} and were rebuilt or removed.</p>
+     */
+    public static int getHydrationMismatchCount() {
+        return Hydration.mismatchCount;
+    }
+
     public static Fragment create(Object model) {
         return create(model.getClass(), model);
     }
@@ -62,31 +159,431 @@ public final class Templates {
     }
 
     public static void update() {
+        ++requestedUpdateCount;
+        if (updating) {
+            return;
+        }
+        if (updateScheduling == UpdateScheduling.IMMEDIATE) {
+            performUpdate();
+        } else {
+            fullUpdateRequested = true;
+            scheduleFlush();
+        }
+    }
+
+    public static void update(Component component) {
+        invalidate(component);
+        ++requestedUpdateCount;
+        if (updating) {
+            return;
+        }
+        if (updateScheduling == UpdateScheduling.IMMEDIATE) {
+            ++performedUpdateCount;
+            renderDirty();
+        } else {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * <p>Synchronously performs updates requested since the last render, if any.
+     * Useful when {@link #setUpdateScheduling(UpdateScheduling)} defers rendering.</p>
+     */
+    public static void flush() {
         if (updating) {
             return;
         }
+        if (fullUpdateRequested) {
+            fullUpdateRequested = false;
+            performUpdate();
+        } else if (!dirtyComponents.isEmpty() || !dirtyObservers.isEmpty()) {
+            ++performedUpdateCount;
+            renderDirty();
+        }
+    }
+
+    public static boolean isReactive() {
+        return reactive;
+    }
+
+    /**
+     * <p>Enables reactive mode for templates bound afterwards. In this mode every binding
+     * records {@link Signal}s it reads, and writing a signal re-renders only bindings that depend on it.
+     * {@link #update()} no longer renders reactive templates as a whole, only bindings affected by signal writes
+     * and components passed to {@link #invalidate(Component)}. Templates bound before keep being
+     * rendered by {@link #update()}.</p>
+     */
+    public static void setReactive(boolean reactive) {
+        Templates.reactive = reactive;
+    }
+
+    static void enqueueObserver(ReactiveObserver observer) {
+        dirtyObservers.add(observer);
+        if (!updating) {
+            scheduleFlush(updateScheduling != UpdateScheduling.IMMEDIATE
+                    ? updateScheduling
+                    : UpdateScheduling.MICROTASK);
+        }
+    }
+
+    public static UpdateScheduling getUpdateScheduling() {
+        return updateScheduling;
+    }
+
+    public static void setUpdateScheduling(UpdateScheduling updateScheduling) {
+        if (updateScheduling == null) {
+            throw new IllegalArgumentException("Update scheduling must not be null");
+        }
+        Templates.updateScheduling = updateScheduling;
+        if (updateScheduling == UpdateScheduling.IMMEDIATE) {
+            flush();
+        }
+    }
+
+    public static int getRequestedUpdateCount() {
+        return requestedUpdateCount;
+    }
+
+    public static int getPerformedUpdateCount() {
+        return performedUpdateCount;
+    }
+
+    public static void resetUpdateCounters() {
+        requestedUpdateCount = 0;
+        performedUpdateCount = 0;
+    }
+
+    public static boolean isTimeSlicing() {
+        return timeSlicing;
+    }
+
+    /**
+     * <p>When enabled, an update that takes longer than {@link #getFrameBudget()} is split across animation frames.
+     * Rendering yields only between whole components: bound templates, components passed to
+     * {@link #invalidate(Component)} and children of <code>std:foreach</code>, so a component is never left
+     * half-rendered. Components that were not reached yet show their previous state until the next frame.</p>
+     */
+    public static void setTimeSlicing(boolean timeSlicing) {
+        Templates.timeSlicing = timeSlicing;
+    }
+
+    public static double getFrameBudget() {
+        return frameBudget;
+    }
+
+    /**
+     * <p>Time in milliseconds a time-sliced update may spend rendering in a single frame.</p>
+     */
+    public static void setFrameBudget(double frameBudget) {
+        if (frameBudget <= 0) {
+            throw new IllegalArgumentException("Frame budget must be positive: " + frameBudget);
+        }
+        Templates.frameBudget = frameBudget;
+    }
+
+    /**
+     * <p>Tells whether the current time-sliced render pass ran out of its frame budget. Components that render
+     * many independent children may check it and pass the rest of the work to {@link #defer(Runnable)}.</p>
+     */
+    public static boolean shouldYield() {
+        return slicing && Performance.now() - sliceStart >= frameBudget;
+    }
+
+    /**
+     * <p>Postpones a part of the current render pass to the next animation frame. The action must render
+     * whole components and check that they are still alive, as the page may change in between.</p>
+     */
+    public static void defer(Runnable render) {
+        if (render == null) {
+            throw new IllegalArgumentException("Render action must not be null");
+        }
+        boolean reactive = renderingReactive;
+        deferredRenders.add(() -> {
+            boolean wasReactive = renderingReactive;
+            renderingReactive = reactive;
+            try {
+                render.run();
+            } finally {
+                renderingReactive = wasReactive;
+            }
+        });
+    }
+
+    public static boolean hasDeferredRendering() {
+        return !deferredRenders.isEmpty();
+    }
+
+    /**
+     * <p>Synchronously performs rendering postponed by time slicing.</p>
+     */
+    public static void finishDeferredRendering() {
+        if (updating || deferredRenders.isEmpty()) {
+            return;
+        }
         updating = true;
+        DomWriteQueue.enter();
         try {
+            while (!deferredRenders.isEmpty()) {
+                deferredRenders.poll().run();
+            }
+        } finally {
+            DomWriteQueue.exit();
+            updating = false;
+        }
+        lastUpdateFrameCount = frameCount;
+    }
+
+    /**
+     * <p>Number of animation frames used by the last completed time-sliced update.</p>
+     */
+    public static int getLastUpdateFrameCount() {
+        return lastUpdateFrameCount;
+    }
+
+    public static boolean isRenderInstrumentationEnabled() {
+        return RenderInstrumentation.enabled;
+    }
+
+    /**
+     * <p>When enabled, every render of a component or attribute component is recorded, both per component class
+     * and per template location.</p>
+     */
+    public static void setRenderInstrumentationEnabled(boolean enabled) {
+        RenderInstrumentation.enabled = enabled;
+    }
+
+    public static Collection<RenderStatistics> getRenderStatisticsByClass() {
+        return Collections.unmodifiableCollection(new ArrayList<>(RenderInstrumentation.byClass.values()));
+    }
+
+    public static Collection<RenderStatistics> getRenderStatisticsByLocation() {
+        return Collections.unmodifiableCollection(new ArrayList<>(RenderInstrumentation.byLocation.values()));
+    }
+
+    public static RenderStatistics getRenderStatisticsForClass(Class<?> cls) {
+        return RenderInstrumentation.byClass.get(cls.getName());
+    }
+
+    public static RenderStatistics getRenderStatisticsForLocation(String location) {
+        return RenderInstrumentation.byLocation.get(location);
+    }
+
+    public static void resetRenderStatistics() {
+        RenderInstrumentation.reset();
+    }
+
+    private static void scheduleFlush() {
+        scheduleFlush(updateScheduling);
+    }
+
+    private static void scheduleFlush(UpdateScheduling scheduling) {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            UpdateScheduler.schedule(scheduling, () -> {
+                flushScheduled = false;
+                flush();
+            });
+        }
+    }
+
+    private static void performUpdate() {
+        ++performedUpdateCount;
+        if (scopedUpdates && !dirtyComponents.isEmpty()) {
+            renderDirty();
+            return;
+        }
+        updating = true;
+        beginSlice();
+        DomWriteQueue.enter();
+        try {
+            // Components of reactive templates are not covered by a full render
+            dirtyComponents.removeIf(component -> !isReactive(component));
             for (RootComponent component : rootComponents) {
-                component.render();
+                if (component.reactive) {
+                    continue;
+                }
+                if (shouldYield()) {
+                    defer(() -> {
+                        if (rootComponents.contains(component)) {
+                            component.render();
+                        }
+                    });
+                } else {
+                    component.render();
+                }
             }
         } finally {
+            DomWriteQueue.exit();
             updating = false;
+            endSlice();
+        }
+        if (!dirtyComponents.isEmpty() || !dirtyObservers.isEmpty()) {
+            renderDirty();
+        }
+    }
+
+    public static void invalidate(Component component) {
+        if (component == null) {
+            throw new IllegalArgumentException("Component must not be null");
         }
+        dirtyComponents.add(component);
+    }
+
+    public static boolean isScopedUpdates() {
+        return scopedUpdates;
+    }
+
+    /**
+     * <p>When enabled, {@link #update()} renders only components marked with {@link #invalidate(Component)}
+     * and falls back to rendering every bound template when nothing was invalidated.</p>
+     */
+    public static void setScopedUpdates(boolean scopedUpdates) {
+        Templates.scopedUpdates = scopedUpdates;
+    }
+
+    private static void renderDirty() {
+        updating = true;
+        beginSlice();
+        DomWriteQueue.enter();
+        try {
+            while (!dirtyComponents.isEmpty() || !dirtyObservers.isEmpty()) {
+                renderDirtyComponents();
+                if (!dirtyObservers.isEmpty()) {
+                    List<ReactiveObserver> observers = new ArrayList<>(dirtyObservers);
+                    dirtyObservers.clear();
+                    boolean wasReactive = renderingReactive;
+                    renderingReactive = true;
+                    try {
+                        for (ReactiveObserver observer : observers) {
+                            if (observer.dirty) {
+                                observer.render();
+                            }
+                        }
+                    } finally {
+                        renderingReactive = wasReactive;
+                    }
+                }
+            }
+        } finally {
+            DomWriteQueue.exit();
+            updating = false;
+            endSlice();
+        }
+    }
+
+    private static void beginSlice() {
+        if (timeSlicing) {
+            slicing = true;
+            sliceStart = Performance.now();
+            if (deferredRenders.isEmpty()) {
+                frameCount = 1;
+            }
+        }
+    }
+
+    private static void endSlice() {
+        slicing = false;
+        if (deferredRenders.isEmpty()) {
+            lastUpdateFrameCount = frameCount;
+        } else if (!continuationScheduled) {
+            continuationScheduled = true;
+            UpdateScheduler.schedule(UpdateScheduling.ANIMATION_FRAME, Templates::renderDeferred);
+        }
+    }
+
+    private static void renderDeferred() {
+        continuationScheduled = false;
+        if (deferredRenders.isEmpty()) {
+            return;
+        }
+        ++frameCount;
+        updating = true;
+        beginSlice();
+        DomWriteQueue.enter();
+        try {
+            do {
+                deferredRenders.poll().run();
+            } while (!deferredRenders.isEmpty() && !shouldYield());
+        } finally {
+            DomWriteQueue.exit();
+            updating = false;
+            endSlice();
+        }
+    }
+
+    private static void renderDirtyComponents() {
+        if (dirtyComponents.isEmpty()) {
+            return;
+        }
+        List<Component> components = new ArrayList<>(dirtyComponents);
+        dirtyComponents.clear();
+        Set<Slot> dirtySlots = new HashSet<>();
+        for (Component component : components) {
+            dirtySlots.add(component.getSlot());
+        }
+        for (Component component : components) {
+            if (component.getSlot().getRoot() != null && !hasDirtyAncestor(component, dirtySlots)) {
+                if (shouldYield()) {
+                    defer(() -> {
+                        if (component.getSlot().getRoot() != null) {
+                            renderInMode(component);
+                        }
+                    });
+                } else {
+                    renderInMode(component);
+                }
+            }
+        }
+    }
+
+    private static void renderInMode(Component component) {
+        boolean wasReactive = renderingReactive;
+        renderingReactive = component.getSlot().getRoot().reactive;
+        try {
+            component.render();
+        } finally {
+            renderingReactive = wasReactive;
+        }
+    }
+
+    private static boolean isReactive(Component component) {
+        RootSlot root = component.getSlot().getRoot();
+        return root != null && root.reactive;
+    }
+
+    private static boolean hasDirtyAncestor(Component component, Set<Slot> dirtySlots) {
+        for (Slot slot = component.getSlot().getParent(); slot != null; slot = slot.getParent()) {
+            if (dirtySlots.contains(slot)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private static class RootComponent extends AbstractComponent {
         private Component inner;
+        boolean reactive;
 
         RootComponent(Slot slot, Component inner) {
             super(slot);
             this.inner = inner;
-            slot.append(inner.getSlot());
+            reactive = Templates.reactive;
+            ((RootSlot) slot).reactive = reactive;
+        }
+
+        void attach() {
+            getSlot().append(inner.getSlot());
         }
 
         @Override
         public void render() {
-            inner.render();
+            boolean wasReactive = renderingReactive;
+            renderingReactive = reactive;
+            try {
+                inner.render();
+            } finally {
+                renderingReactive = wasReactive;
+            }
         }
 
         @Override
@@ -0,0 +1,48 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSFunctor;
+import org.teavm.jso.JSObject;
+import org.teavm.jso.browser.Window;
+
+final class UpdateScheduler {
+    private UpdateScheduler() {
+    }
+
+    static void schedule(UpdateScheduling scheduling, Runnable action) {
+        switch (scheduling) {
+            case ANIMATION_FRAME:
+                Window.requestAnimationFrame(timestamp -> action.run());
+                break;
+            case MICROTASK:
+                enqueueMicrotask(action::run);
+                break;
+            default:
+                action.run();
+                break;
+        }
+    }
+
+    @JSBody(params = "callback", script = "Promise.resolve().then(function() { callback(); });")
+    private static native void enqueueMicrotask(Callback callback);
+
+    @JSFunctor
+    interface Callback extends JSObject {
+        void run();
+    }
+}
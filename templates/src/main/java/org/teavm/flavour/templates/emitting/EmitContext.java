@@ -19,9 +19,13 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import org.teavm.flavour.expr.Location;
+import org.teavm.flavour.expr.plan.Plan;
+import org.teavm.flavour.templates.ExpressionCache;
+import org.teavm.flavour.templates.MemoCache;
 import org.teavm.metaprogramming.Metaprogramming;
 import org.teavm.metaprogramming.Value;
 
@@ -31,6 +35,8 @@ class EmitContext {
     Value<Object> model;
     List<Map<String, VariableEmitter>> boundVariableStack = new ArrayList<>();
     Map<String, Deque<VariableEmitter>> variables = new HashMap<>();
+    Map<Plan, Value<ExpressionCache>> cachedExpressions = new IdentityHashMap<>();
+    Map<Plan, Value<MemoCache>> memoCaches = new IdentityHashMap<>();
 
     EmitContext(OffsetToLineMapper locationMapper) {
         this.locationMapper = locationMapper;
@@ -76,6 +82,13 @@ class EmitContext {
         Metaprogramming.location(sourceFileName, line + 1);
     }
 
+    public String describeLocation(Location location) {
+        if (location == null) {
+            return sourceFileName;
+        }
+        return sourceFileName + ":" + (locationMapper.getLine(location.getStart()) + 1);
+    }
+
     public void endLocation(Location location) {
         if (location == null) {
             return;
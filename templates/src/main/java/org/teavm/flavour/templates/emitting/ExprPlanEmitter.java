@@ -25,6 +25,7 @@ import static org.teavm.metaprogramming.Metaprogramming.proxy;
 import java.util.ArrayList;
 import java.util.List;
 import org.teavm.flavour.expr.InterpretationException;
+import org.teavm.flavour.expr.Memo;
 import org.teavm.flavour.expr.plan.ArithmeticCastPlan;
 import org.teavm.flavour.expr.plan.ArrayConstructionPlan;
 import org.teavm.flavour.expr.plan.ArrayLengthPlan;
@@ -51,6 +52,8 @@ import org.teavm.flavour.expr.plan.PlanVisitor;
 import org.teavm.flavour.expr.plan.ReferenceEqualityPlan;
 import org.teavm.flavour.expr.plan.ThisPlan;
 import org.teavm.flavour.expr.plan.VariablePlan;
+import org.teavm.flavour.templates.ExpressionCache;
+import org.teavm.flavour.templates.MemoCache;
 import org.teavm.flavour.templates.Templates;
 import org.teavm.metaprogramming.ReflectClass;
 import org.teavm.metaprogramming.Value;
@@ -69,6 +72,15 @@ class ExprPlanEmitter implements PlanVisitor {
         context.location(plan.getLocation());
     }
 
+    void emitPlan(Plan plan) {
+        Value<ExpressionCache> cache = context.cachedExpressions.get(plan);
+        plan.acceptVisitor(this);
+        if (cache != null) {
+            Value<Object> computed = var;
+            var = lazy(() -> cache.get().isValid() ? cache.get().getValue() : cache.get().store(computed.get()));
+        }
+    }
+
     @Override
     public void visit(ConstantPlan plan) {
         location(plan);
@@ -98,9 +110,9 @@ class ExprPlanEmitter implements PlanVisitor {
 
     @Override
     public void visit(BinaryPlan plan) {
-        plan.getFirstOperand().acceptVisitor(this);
+        emitPlan(plan.getFirstOperand());
         Value<Object> first = var;
-        plan.getSecondOperand().acceptVisitor(this);
+        emitPlan(plan.getSecondOperand());
         Value<Object> second = var;
 
         location(plan);
@@ -286,7 +298,7 @@ class ExprPlanEmitter implements PlanVisitor {
 
     @Override
     public void visit(NegatePlan plan) {
-        plan.getOperand().acceptVisitor(this);
+        emitPlan(plan.getOperand());
         location(plan);
         Value<Object> operand = var;
         switch (plan.getValueType()) {
@@ -307,9 +319,9 @@ class ExprPlanEmitter implements PlanVisitor {
 
     @Override
     public void visit(ReferenceEqualityPlan plan) {
-        plan.getFirstOperand().acceptVisitor(this);
+        emitPlan(plan.getFirstOperand());
         Value<Object> first = var;
-        plan.getSecondOperand().acceptVisitor(this);
+        emitPlan(plan.getSecondOperand());
         Value<Object> second = var;
 
         location(plan);
@@ -325,9 +337,9 @@ class ExprPlanEmitter implements PlanVisitor {
 
     @Override
     public void visit(LogicalBinaryPlan plan) {
-        plan.getFirstOperand().acceptVisitor(this);
+        emitPlan(plan.getFirstOperand());
         Value<Object> first = var;
-        plan.getSecondOperand().acceptVisitor(this);
+        emitPlan(plan.getSecondOperand());
         Value<Object> second = var;
 
         location(plan);
@@ -343,7 +355,7 @@ class ExprPlanEmitter implements PlanVisitor {
 
     @Override
     public void visit(NotPlan plan) {
-        plan.getOperand().acceptVisitor(this);
+        emitPlan(plan.getOperand());
         Value<Object> operand = var;
 
         location(plan);
@@ -352,7 +364,7 @@ class ExprPlanEmitter implements PlanVisitor {
 
     @Override
     public void visit(CastPlan plan) {
-        plan.getOperand().acceptVisitor(this);
+        emitPlan(plan.getOperand());
         Value<Object> operand = var;
         TypeParser typeParser = new TypeParser(plan.getTargetType());
         ReflectClass<Object> cls = typeParser.parse().asSubclass(Object.class);
@@ -363,7 +375,7 @@ class ExprPlanEmitter implements PlanVisitor {
 
     @Override
     public void visit(ArithmeticCastPlan plan) {
-        plan.getOperand().acceptVisitor(this);
+        emitPlan(plan.getOperand());
         Value<Object> operand = var;
 
         location(plan);
@@ -433,7 +445,7 @@ class ExprPlanEmitter implements PlanVisitor {
 
     @Override
     public void visit(CastFromIntegerPlan plan) {
-        plan.getOperand().acceptVisitor(this);
+        emitPlan(plan.getOperand());
         Value<Object> value = var;
         location(plan);
         Value<Integer> intValue = lazy(() -> (Integer) value.get());
@@ -452,7 +464,7 @@ class ExprPlanEmitter implements PlanVisitor {
 
     @Override
     public void visit(CastToIntegerPlan plan) {
-        plan.getOperand().acceptVisitor(this);
+        emitPlan(plan.getOperand());
         Value<Object> value = var;
 
         location(plan);
@@ -471,9 +483,9 @@ class ExprPlanEmitter implements PlanVisitor {
 
     @Override
     public void visit(GetArrayElementPlan plan) {
-        plan.getArray().acceptVisitor(this);
+        emitPlan(plan.getArray());
         Value<Object> array = var;
-        plan.getIndex().acceptVisitor(this);
+        emitPlan(plan.getIndex());
         Value<Object> index = var;
 
         location(plan);
@@ -482,7 +494,7 @@ class ExprPlanEmitter implements PlanVisitor {
 
     @Override
     public void visit(ArrayLengthPlan plan) {
-        plan.getArray().acceptVisitor(this);
+        emitPlan(plan.getArray());
         Value<Object> array = var;
 
         location(plan);
@@ -495,7 +507,7 @@ class ExprPlanEmitter implements PlanVisitor {
         ReflectField field = cls.getField(plan.getFieldName());
 
         if (plan.getInstance() != null) {
-            plan.getInstance().acceptVisitor(this);
+            emitPlan(plan.getInstance());
             Value<Object> instance = var;
             location(plan);
             var = lazy(() -> field.get(instance.get()));
@@ -510,10 +522,10 @@ class ExprPlanEmitter implements PlanVisitor {
         ReflectClass<?> cls = findClass(plan.getClassName());
         ReflectField field = cls.getField(plan.getFieldName());
 
-        plan.getValue().acceptVisitor(this);
+        emitPlan(plan.getValue());
         Value<Object> value = var;
         if (plan.getInstance() != null) {
-            plan.getInstance().acceptVisitor(this);
+            emitPlan(plan.getInstance());
             Value<Object> instance = var;
             location(plan);
             var = lazy(() -> {
@@ -532,7 +544,7 @@ class ExprPlanEmitter implements PlanVisitor {
     @Override
     public void visit(InstanceOfPlan plan) {
         ReflectClass<?> cls = new TypeDecoder(plan.getClassName()).decode();
-        plan.getOperand().acceptVisitor(this);
+        emitPlan(plan.getOperand());
         Value<Object> value = var;
 
         location(plan);
@@ -541,10 +553,16 @@ class ExprPlanEmitter implements PlanVisitor {
 
     @Override
     public void visit(InvocationPlan plan) {
+        Memo memo = getMemo(plan);
+        if (memo != null) {
+            emitMemoInvocation(plan, memo);
+            return;
+        }
+
         var = lazyFragment(() -> {
             Value<Object> instance;
             if (plan.getInstance() != null) {
-                plan.getInstance().acceptVisitor(this);
+                emitPlan(plan.getInstance());
                 instance = var;
             } else {
                 instance = null;
@@ -557,7 +575,7 @@ class ExprPlanEmitter implements PlanVisitor {
             Value<Object[]> arguments = emit(() -> new Object[argCount]);
             for (int i = 0; i < plan.getArguments().size(); ++i) {
                 int index = i;
-                plan.getArguments().get(i).acceptVisitor(this);
+                emitPlan(plan.getArguments().get(i));
                 Value<Object> argValue = var;
                 emit(() -> arguments.get()[index] = argValue.get());
             }
@@ -566,6 +584,66 @@ class ExprPlanEmitter implements PlanVisitor {
         });
     }
 
+    Memo getMemo(InvocationPlan plan) {
+        if (plan.getInstance() == null || !plan.getArguments().isEmpty()) {
+            return null;
+        }
+        ReflectClass<?> cls = findClass(plan.getClassName());
+        ReflectMethod method = cls != null ? findMethod(cls, plan.getMethodName(), plan.getMethodDesc()) : null;
+        return method != null ? method.getAnnotation(Memo.class) : null;
+    }
+
+    private void emitMemoInvocation(InvocationPlan plan, Memo memo) {
+        Value<MemoCache> knownCache = context.memoCaches.get(plan);
+        String key = plan.getClassName() + "." + plan.getMethodName();
+        var = lazyFragment(() -> {
+            emitPlan(plan.getInstance());
+            Value<Object> instance = var;
+
+            location(plan);
+            ReflectClass<?> cls = findClass(plan.getClassName());
+            ReflectMethod method = findMethod(cls, plan.getMethodName(), plan.getMethodDesc());
+            Value<Object> target = emit(() -> instance.get());
+            Value<MemoCache> cache = knownCache != null ? knownCache : emit(() -> new MemoCache());
+            Value<Object[]> dependencies = emitMemoDependencies(cls, memo.dependsOn(), target);
+            Value<Object> computed = lazy(() -> method.invoke(target.get()));
+            return emit(() -> cache.get().lookup(target.get(), key) || cache.get().matches(dependencies.get())
+                    ? cache.get().getValue()
+                    : cache.get().store(computed.get()));
+        });
+    }
+
+    private Value<Object[]> emitMemoDependencies(ReflectClass<?> cls, String[] names, Value<Object> target) {
+        if (names.length == 0) {
+            return lazy(() -> null);
+        }
+        return lazyFragment(() -> {
+            int count = names.length;
+            Value<Object[]> array = emit(() -> new Object[count]);
+            for (int i = 0; i < count; ++i) {
+                int index = i;
+                Value<Object> dependency = emitMemoDependency(cls, names[i], target);
+                emit(() -> array.get()[index] = dependency.get());
+            }
+            return emit(() -> array.get());
+        });
+    }
+
+    private Value<Object> emitMemoDependency(ReflectClass<?> cls, String name, Value<Object> target) {
+        ReflectField field = cls.getField(name);
+        if (field != null) {
+            return lazy(() -> field.get(target.get()));
+        }
+        String suffix = name.isEmpty() ? "" : Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (String methodName : new String[] { "get" + suffix, "is" + suffix, name }) {
+            ReflectMethod getter = cls.getMethod(methodName);
+            if (getter != null && getter.getReturnType() != findClass(void.class)) {
+                return lazy(() -> getter.invoke(target.get()));
+            }
+        }
+        return lazy(() -> null);
+    }
+
     @Override
     public void visit(ConstructionPlan plan) {
         var = lazyFragment(() -> {
@@ -577,7 +655,7 @@ class ExprPlanEmitter implements PlanVisitor {
             Value<Object[]> arguments = emit(() -> new Object[argCount]);
             for (int i = 0; i < plan.getArguments().size(); ++i) {
                 int index = i;
-                plan.getArguments().get(i).acceptVisitor(this);
+                emitPlan(plan.getArguments().get(i));
                 Value<Object> argValue = var;
                 emit(() -> arguments.get()[index] = argValue.get());
             }
@@ -590,7 +668,7 @@ class ExprPlanEmitter implements PlanVisitor {
     public void visit(ArrayConstructionPlan plan) {
         List<Value<Object>> elements = new ArrayList<>();
         for (Plan elemPlan : plan.getElements()) {
-            elemPlan.acceptVisitor(this);
+            emitPlan(elemPlan);
             elements.add(var);
         }
         ReflectClass<Object> cls = new TypeParser(plan.getElementType()).parse().asSubclass(Object.class);
@@ -607,7 +685,7 @@ class ExprPlanEmitter implements PlanVisitor {
         });
     }
 
-    private ReflectMethod findMethod(ReflectClass<?> owner, String name, String desc) {
+    ReflectMethod findMethod(ReflectClass<?> owner, String name, String desc) {
         TypeParser parser = new TypeParser(desc);
         parser.index++;
         List<ReflectClass<?>> argumentTypes = new ArrayList<>();
@@ -623,11 +701,11 @@ class ExprPlanEmitter implements PlanVisitor {
 
     @Override
     public void visit(ConditionalPlan plan) {
-        plan.getCondition().acceptVisitor(this);
+        emitPlan(plan.getCondition());
         Value<Object> condition = var;
-        plan.getConsequent().acceptVisitor(this);
+        emitPlan(plan.getConsequent());
         Value<Object> consequent = var;
-        plan.getAlternative().acceptVisitor(this);
+        emitPlan(plan.getAlternative());
         Value<Object> alternative = var;
 
         location(plan);
@@ -647,7 +725,7 @@ class ExprPlanEmitter implements PlanVisitor {
 
         for (ObjectPlanEntry entry : plan.getEntries()) {
             ReflectMethod setter = findMethod(cls, entry.getSetterName(), entry.getSetterDesc());
-            entry.getValue().acceptVisitor(this);
+            emitPlan(entry.getValue());
             Value<?> value = var;
             emit(() -> setter.invoke(instance, value));
         }
@@ -666,7 +744,7 @@ class ExprPlanEmitter implements PlanVisitor {
             }
 
             location(plan);
-            plan.getBody().acceptVisitor(this);
+            emitPlan(plan.getBody());
             Value<Object> result = var;
             Value<Object> valueToReturn = emit(() -> result.get());
             if (updateTemplates) {
@@ -19,12 +19,18 @@ import static org.teavm.metaprogramming.Metaprogramming.emit;
 import static org.teavm.metaprogramming.Metaprogramming.exit;
 import static org.teavm.metaprogramming.Metaprogramming.findClass;
 import static org.teavm.metaprogramming.Metaprogramming.proxy;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import org.teavm.flavour.expr.plan.Plan;
 import org.teavm.flavour.templates.Component;
 import org.teavm.flavour.templates.DomBuilder;
 import org.teavm.flavour.templates.DomComponentHandler;
 import org.teavm.flavour.templates.DomComponentTemplate;
+import org.teavm.flavour.templates.ExpressionCache;
 import org.teavm.flavour.templates.Fragment;
+import org.teavm.flavour.templates.MemoCache;
 import org.teavm.flavour.templates.tree.ComponentBinding;
 import org.teavm.flavour.templates.tree.TemplateNode;
 import org.teavm.metaprogramming.ReflectClass;
@@ -47,6 +53,11 @@ class FragmentEmitter {
                 ? findClass(component.getClassName()).asSubclass(Component.class)
                 : null;
 
+        SharedExpressionFinder sharedExpressionFinder = new SharedExpressionFinder(context);
+        sharedExpressionFinder.addFragment(fragment);
+        Map<String, List<Plan>> sharedExpressions = sharedExpressionFinder.findSharedExpressions();
+        List<Plan> memoizedInvocations = sharedExpressionFinder.getMemoizedInvocations();
+
         return proxy(Fragment.class, (fProxy, fMethod, fArgs) -> {
             context.pushBoundVars();
 
@@ -56,20 +67,45 @@ class FragmentEmitter {
                 variable.destination = dest;
             }
 
+            List<Value<ExpressionCache>> caches = new ArrayList<>();
+            Map<Plan, Value<ExpressionCache>> cachedExpressions = new IdentityHashMap<>();
+            for (List<Plan> group : sharedExpressions.values()) {
+                Value<ExpressionCache> cache = emit(() -> new ExpressionCache());
+                caches.add(cache);
+                for (Plan plan : group) {
+                    cachedExpressions.put(plan, cache);
+                }
+            }
+            Map<Plan, Value<MemoCache>> memoCaches = new IdentityHashMap<>();
+            for (Plan plan : memoizedInvocations) {
+                memoCaches.put(plan, emit(() -> new MemoCache()));
+            }
+
             Value<DomComponentHandler> handler = proxy(DomComponentHandler.class, (proxy, method, args) -> {
                 switch (method.getName()) {
                     case "update":
                         if (componentType != null) {
                             emitUpdateMethod(variables);
                         }
+                        for (Value<ExpressionCache> cache : caches) {
+                            emit(() -> cache.get().activate());
+                        }
                         break;
-                    case "buildDom":
+                    case "buildDom": {
+                        Map<Plan, Value<ExpressionCache>> outerCachedExpressions = context.cachedExpressions;
+                        Map<Plan, Value<MemoCache>> outerMemoCaches = context.memoCaches;
+                        context.cachedExpressions = cachedExpressions;
+                        context.memoCaches = memoCaches;
                         emitBuildDomMethod(emit(() -> (DomBuilder) args[0]), fragment);
+                        context.cachedExpressions = outerCachedExpressions;
+                        context.memoCaches = outerMemoCaches;
                         break;
+                    }
                 }
             });
 
-            Value<Component> result = emit(() -> new DomComponentTemplate(handler.get()));
+            boolean cachingExpressions = !caches.isEmpty();
+            Value<Component> result = emit(() -> new DomComponentTemplate(handler.get(), cachingExpressions));
             exit(() -> result.get());
         });
     }
@@ -0,0 +1,413 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates.emitting;
+
+import static org.teavm.metaprogramming.Metaprogramming.findClass;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.teavm.flavour.expr.plan.ArithmeticCastPlan;
+import org.teavm.flavour.expr.plan.ArrayConstructionPlan;
+import org.teavm.flavour.expr.plan.ArrayLengthPlan;
+import org.teavm.flavour.expr.plan.BinaryPlan;
+import org.teavm.flavour.expr.plan.CastFromIntegerPlan;
+import org.teavm.flavour.expr.plan.CastPlan;
+import org.teavm.flavour.expr.plan.CastToIntegerPlan;
+import org.teavm.flavour.expr.plan.ConditionalPlan;
+import org.teavm.flavour.expr.plan.ConstantPlan;
+import org.teavm.flavour.expr.plan.ConstructionPlan;
+import org.teavm.flavour.expr.plan.FieldAssignmentPlan;
+import org.teavm.flavour.expr.plan.FieldPlan;
+import org.teavm.flavour.expr.plan.GetArrayElementPlan;
+import org.teavm.flavour.expr.plan.InstanceOfPlan;
+import org.teavm.flavour.expr.plan.InvocationPlan;
+import org.teavm.flavour.expr.plan.LambdaPlan;
+import org.teavm.flavour.expr.plan.LogicalBinaryPlan;
+import org.teavm.flavour.expr.plan.NegatePlan;
+import org.teavm.flavour.expr.plan.NotPlan;
+import org.teavm.flavour.expr.plan.ObjectPlan;
+import org.teavm.flavour.expr.plan.Plan;
+import org.teavm.flavour.expr.plan.PlanVisitor;
+import org.teavm.flavour.expr.plan.ReferenceEqualityPlan;
+import org.teavm.flavour.expr.plan.ThisPlan;
+import org.teavm.flavour.expr.plan.VariablePlan;
+import org.teavm.flavour.templates.Pure;
+import org.teavm.flavour.templates.tree.AttributeComponentBinding;
+import org.teavm.flavour.templates.tree.ComponentBinding;
+import org.teavm.flavour.templates.tree.ComponentFunctionBinding;
+import org.teavm.flavour.templates.tree.DOMElement;
+import org.teavm.flavour.templates.tree.NestedComponentBinding;
+import org.teavm.flavour.templates.tree.TemplateNode;
+import org.teavm.metaprogramming.ReflectClass;
+import org.teavm.metaprogramming.reflect.ReflectMethod;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.ValueType;
+
+/**
+ * <p>Finds side-effect free subexpressions that occur more than once among the bindings of a single fragment.
+ * Only expressions that call a method are considered, since reading a field or a variable costs no more than
+ * reading a cached value. Methods are known to be pure when they are marked with {@link Pure}, or belong
+ * to immutable JDK value classes, or are read-only accessors of collections.</p>
+ */
+class SharedExpressionFinder implements PlanVisitor {
+    private static final Set<String> PURE_CLASSES = new HashSet<>(Arrays.asList("java.lang.String",
+            "java.lang.Boolean", "java.lang.Byte", "java.lang.Short", "java.lang.Character", "java.lang.Integer",
+            "java.lang.Long", "java.lang.Float", "java.lang.Double", "java.util.Objects"));
+    private static final Set<String> PURE_COLLECTION_METHODS = new HashSet<>(Arrays.asList("size", "isEmpty",
+            "get", "contains", "containsKey", "containsValue", "indexOf", "lastIndexOf"));
+    private ExprPlanEmitter methodResolver;
+    private List<Plan> plans = new ArrayList<>();
+    private Map<Plan, String> keys = new IdentityHashMap<>();
+    private Map<Plan, Plan> parents = new IdentityHashMap<>();
+    private Set<Plan> invocations = Collections.newSetFromMap(new IdentityHashMap<>());
+    private Map<String, Integer> occurrences = new HashMap<>();
+    private Set<String> boundVars = new HashSet<>();
+    private List<Plan> memoizedInvocations = new ArrayList<>();
+    private Plan currentParent;
+    private boolean containsInvocation;
+    private String key;
+
+    SharedExpressionFinder(EmitContext context) {
+        methodResolver = new ExprPlanEmitter(context);
+    }
+
+    public void addFragment(List<TemplateNode> fragment) {
+        for (TemplateNode node : fragment) {
+            addNode(node);
+        }
+    }
+
+    private void addNode(TemplateNode node) {
+        if (node instanceof DOMElement) {
+            DOMElement element = (DOMElement) node;
+            for (AttributeComponentBinding binding : element.getAttributeComponents()) {
+                for (ComponentFunctionBinding function : binding.getFunctions()) {
+                    addFunction(function);
+                }
+            }
+            for (TemplateNode child : element.getChildNodes()) {
+                addNode(child);
+            }
+        } else if (node instanceof ComponentBinding) {
+            addComponent((ComponentBinding) node);
+        }
+    }
+
+    private void addComponent(ComponentBinding component) {
+        for (ComponentFunctionBinding function : component.getComputations()) {
+            addFunction(function);
+        }
+        for (NestedComponentBinding nested : component.getNestedComponents()) {
+            for (ComponentBinding nestedComponent : nested.getComponents()) {
+                addComponent(nestedComponent);
+            }
+        }
+    }
+
+    private void addFunction(ComponentFunctionBinding function) {
+        LambdaPlan plan = function.getPlan();
+        ValueType[] signature = MethodDescriptor.parseSignature(plan.getMethodDesc());
+        if (signature[signature.length - 1] == ValueType.VOID) {
+            return;
+        }
+        boundVars.clear();
+        boundVars.addAll(plan.getBoundVars());
+        currentParent = null;
+        containsInvocation = false;
+        analyze(plan.getBody());
+    }
+
+    /**
+     * <p>Returns groups of equivalent subexpressions, each group should be computed once per render.</p>
+     */
+    public Map<String, List<Plan>> findSharedExpressions() {
+        Set<Plan> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Plan plan : plans) {
+            String planKey = keys.get(plan);
+            if (planKey != null && invocations.contains(plan) && occurrences.get(planKey) > 1) {
+                candidates.add(plan);
+            }
+        }
+
+        Map<String, List<Plan>> groups = new LinkedHashMap<>();
+        for (Plan plan : plans) {
+            if (candidates.contains(plan) && !hasCandidateAncestor(plan, candidates)) {
+                groups.computeIfAbsent(keys.get(plan), k -> new ArrayList<>()).add(plan);
+            }
+        }
+        groups.values().removeIf(group -> group.size() < 2);
+        return groups;
+    }
+
+    /**
+     * <p>Returns invocations of getters marked with {@link org.teavm.flavour.expr.Memo}, each of them needs
+     * a cache that lives as long as the fragment instance.</p>
+     */
+    public List<Plan> getMemoizedInvocations() {
+        return memoizedInvocations;
+    }
+
+    private boolean hasCandidateAncestor(Plan plan, Set<Plan> candidates) {
+        for (Plan ancestor = parents.get(plan); ancestor != null; ancestor = parents.get(ancestor)) {
+            if (candidates.contains(ancestor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String analyze(Plan plan) {
+        Plan parent = currentParent;
+        boolean parentContainsInvocation = containsInvocation;
+        parents.put(plan, parent);
+        plans.add(plan);
+        currentParent = plan;
+        containsInvocation = false;
+        key = null;
+
+        plan.acceptVisitor(this);
+
+        String result = key;
+        if (result != null) {
+            keys.put(plan, result);
+            occurrences.merge(result, 1, Integer::sum);
+            if (containsInvocation) {
+                invocations.add(plan);
+            }
+        }
+        containsInvocation |= parentContainsInvocation;
+        currentParent = parent;
+        return result;
+    }
+
+    private static String compose(String head, String... operands) {
+        StringBuilder sb = new StringBuilder();
+        sb.append('(').append(head);
+        for (String operand : operands) {
+            if (operand == null) {
+                return null;
+            }
+            sb.append(' ').append(operand);
+        }
+        return sb.append(')').toString();
+    }
+
+    private boolean isPure(InvocationPlan plan) {
+        String desc = plan.getMethodDesc();
+        char returnType = desc.charAt(desc.indexOf(')') + 1);
+        if (returnType == 'V' || returnType == '[') {
+            return false;
+        }
+        String className = plan.getClassName();
+        String methodName = plan.getMethodName();
+        if (PURE_CLASSES.contains(className)) {
+            return true;
+        }
+        if (className.equals("java.lang.Math")) {
+            return !methodName.equals("random");
+        }
+
+        ReflectClass<?> cls = findClass(className);
+        if (cls == null) {
+            return false;
+        }
+        if (PURE_COLLECTION_METHODS.contains(methodName) && (findClass(Collection.class).isAssignableFrom(cls)
+                || findClass(Map.class).isAssignableFrom(cls))) {
+            return true;
+        }
+        if (cls.getAnnotation(Pure.class) != null) {
+            return true;
+        }
+        ReflectMethod method = methodResolver.findMethod(cls, methodName, desc);
+        return method != null && method.getAnnotation(Pure.class) != null;
+    }
+
+    @Override
+    public void visit(ConstantPlan plan) {
+        Object value = plan.getValue();
+        if (value == null) {
+            key = "(null)";
+        } else {
+            String text = String.valueOf(value);
+            key = compose("constant " + value.getClass().getName() + " " + text.length() + ":" + text);
+        }
+    }
+
+    @Override
+    public void visit(VariablePlan plan) {
+        key = !boundVars.contains(plan.getName()) ? compose("var " + plan.getName()) : null;
+    }
+
+    @Override
+    public void visit(ThisPlan plan) {
+        key = "(this)";
+    }
+
+    @Override
+    public void visit(BinaryPlan plan) {
+        String first = analyze(plan.getFirstOperand());
+        String second = analyze(plan.getSecondOperand());
+        key = compose("binary " + plan.getType() + " " + plan.getValueType(), first, second);
+    }
+
+    @Override
+    public void visit(NegatePlan plan) {
+        String operand = analyze(plan.getOperand());
+        key = compose("negate " + plan.getValueType(), operand);
+    }
+
+    @Override
+    public void visit(ReferenceEqualityPlan plan) {
+        String first = analyze(plan.getFirstOperand());
+        String second = analyze(plan.getSecondOperand());
+        key = compose("ref " + plan.getType(), first, second);
+    }
+
+    @Override
+    public void visit(LogicalBinaryPlan plan) {
+        String first = analyze(plan.getFirstOperand());
+        String second = analyze(plan.getSecondOperand());
+        key = compose("logical " + plan.getType(), first, second);
+    }
+
+    @Override
+    public void visit(NotPlan plan) {
+        String operand = analyze(plan.getOperand());
+        key = compose("not", operand);
+    }
+
+    @Override
+    public void visit(CastPlan plan) {
+        String operand = analyze(plan.getOperand());
+        key = compose("cast " + plan.getTargetType(), operand);
+    }
+
+    @Override
+    public void visit(ArithmeticCastPlan plan) {
+        String operand = analyze(plan.getOperand());
+        key = compose("arithmetic-cast " + plan.getSourceType() + " " + plan.getTargetType(), operand);
+    }
+
+    @Override
+    public void visit(CastFromIntegerPlan plan) {
+        String operand = analyze(plan.getOperand());
+        key = compose("cast-from-int " + plan.getType(), operand);
+    }
+
+    @Override
+    public void visit(CastToIntegerPlan plan) {
+        String operand = analyze(plan.getOperand());
+        key = compose("cast-to-int " + plan.getType(), operand);
+    }
+
+    @Override
+    public void visit(GetArrayElementPlan plan) {
+        String array = analyze(plan.getArray());
+        String index = analyze(plan.getIndex());
+        key = compose("array-element", array, index);
+    }
+
+    @Override
+    public void visit(ArrayLengthPlan plan) {
+        String array = analyze(plan.getArray());
+        key = compose("array-length", array);
+    }
+
+    @Override
+    public void visit(FieldPlan plan) {
+        String field = plan.getClassName() + "." + plan.getFieldName();
+        if (plan.getInstance() != null) {
+            String instance = analyze(plan.getInstance());
+            key = compose("field " + field, instance);
+        } else {
+            key = compose("static-field " + field);
+        }
+    }
+
+    @Override
+    public void visit(FieldAssignmentPlan plan) {
+        analyze(plan.getValue());
+        if (plan.getInstance() != null) {
+            analyze(plan.getInstance());
+        }
+        key = null;
+    }
+
+    @Override
+    public void visit(InstanceOfPlan plan) {
+        String operand = analyze(plan.getOperand());
+        key = compose("instanceof " + plan.getClassName(), operand);
+    }
+
+    @Override
+    public void visit(InvocationPlan plan) {
+        String[] operands = new String[plan.getArguments().size() + 1];
+        operands[0] = plan.getInstance() != null ? analyze(plan.getInstance()) : "static";
+        for (int i = 0; i < plan.getArguments().size(); ++i) {
+            operands[i + 1] = analyze(plan.getArguments().get(i));
+        }
+        if (methodResolver.getMemo(plan) != null) {
+            memoizedInvocations.add(plan);
+        }
+        containsInvocation = true;
+        key = isPure(plan)
+                ? compose("invoke " + plan.getClassName() + "." + plan.getMethodName() + plan.getMethodDesc(),
+                        operands)
+                : null;
+    }
+
+    @Override
+    public void visit(ConstructionPlan plan) {
+        for (Plan argument : plan.getArguments()) {
+            analyze(argument);
+        }
+        key = null;
+    }
+
+    @Override
+    public void visit(ArrayConstructionPlan plan) {
+        for (Plan element : plan.getElements()) {
+            analyze(element);
+        }
+        key = null;
+    }
+
+    @Override
+    public void visit(ConditionalPlan plan) {
+        String condition = analyze(plan.getCondition());
+        String consequent = analyze(plan.getConsequent());
+        String alternative = analyze(plan.getAlternative());
+        key = compose("conditional", condition, consequent, alternative);
+    }
+
+    @Override
+    public void visit(LambdaPlan plan) {
+        key = null;
+    }
+
+    @Override
+    public void visit(ObjectPlan plan) {
+        key = null;
+    }
+}
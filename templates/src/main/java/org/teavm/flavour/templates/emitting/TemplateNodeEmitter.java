@@ -23,6 +23,7 @@ import static org.teavm.metaprogramming.Metaprogramming.proxy;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.teavm.flavour.expr.plan.LambdaPlan;
 import org.teavm.flavour.templates.Component;
@@ -50,6 +51,7 @@ import org.teavm.model.ValueType;
 
 class TemplateNodeEmitter implements TemplateNodeVisitor {
     private static final int COMPLEXITY_THRESHOLD = 20;
+    private static final AtomicInteger TEMPLATE_ID_GENERATOR = new AtomicInteger();
 
     private EmitContext context;
     private Value<DomBuilder> builder;
@@ -66,8 +68,24 @@ class TemplateNodeEmitter implements TemplateNodeVisitor {
     public void visit(DOMElement node) {
         context.location(node.getLocation());
 
-        boolean hasInnerComponents = node.getChildNodes().stream()
-                .anyMatch(child -> child instanceof ComponentBinding);
+        if (hasSkeleton(node)) {
+            StringBuilder sb = new StringBuilder();
+            encodeSkeleton(node, sb);
+            String template = sb.toString();
+            int id = TEMPLATE_ID_GENERATOR.getAndIncrement();
+            Value<DomBuilder> tmpBuilder = builder;
+            if (isStaticTree(node)) {
+                updateBuilder(emit(() -> tmpBuilder.get().cloneTemplate(id, template)));
+                return;
+            }
+            boolean slot = hasInnerComponents(node);
+            updateBuilder(emit(() -> tmpBuilder.get().openTemplate(id, template, slot)));
+            emitSkeletonHoles(node);
+            emitClose(node);
+            return;
+        }
+
+        boolean hasInnerComponents = hasInnerComponents(node);
         String tagName = node.getName();
         {
             Value<DomBuilder> tmpBuilder = builder;
@@ -86,21 +104,95 @@ class TemplateNodeEmitter implements TemplateNodeVisitor {
             updateBuilder(emit(() -> tmpBuilder.get().attribute(attrName, attrValue)));
         }
 
+        emitModifiers(node);
+
+        for (TemplateNode child : node.getChildNodes()) {
+            child.acceptVisitor(this);
+        }
+
+        emitClose(node);
+    }
+
+    /**
+     * <p>Fills dynamic parts of an element opened from a skeleton: modifiers, components, which are put before
+     * the following skeleton child, and nested elements that have dynamic parts themselves.</p>
+     */
+    private void emitSkeletonHoles(DOMElement node) {
+        emitModifiers(node);
+        int index = 0;
+        for (TemplateNode child : node.getChildNodes()) {
+            if (child instanceof ComponentBinding) {
+                emitComponent((ComponentBinding) child, index);
+                continue;
+            }
+            if (!isStaticTree(child)) {
+                DOMElement element = (DOMElement) child;
+                context.location(element.getLocation());
+                int childIndex = index;
+                boolean slot = hasInnerComponents(element);
+                Value<DomBuilder> tmpBuilder = builder;
+                updateBuilder(emit(() -> tmpBuilder.get().enter(childIndex, slot)));
+                emitSkeletonHoles(element);
+                emitClose(element);
+            }
+            ++index;
+        }
+    }
+
+    private void emitModifiers(DOMElement node) {
         for (AttributeComponentBinding binding : node.getAttributeComponents()) {
             Value<DomBuilder> tmpBuilder = builder;
             Value<Modifier> modifier = emitAttributeComponent(binding);
-            updateBuilder(emit(() -> tmpBuilder.get().add(modifier.get())));
+            String location = context.describeLocation(binding.getLocation());
+            updateBuilder(emit(() -> tmpBuilder.get().add(modifier.get(), location)));
         }
+    }
 
-        for (TemplateNode child : node.getChildNodes()) {
-            child.acceptVisitor(this);
+    private void emitClose(DOMElement node) {
+        Value<DomBuilder> tmpBuilder = builder;
+        context.endLocation(node.getLocation());
+        updateBuilder(emit(() -> tmpBuilder.get().close()));
+    }
+
+    private static boolean hasInnerComponents(DOMElement node) {
+        return node.getChildNodes().stream().anyMatch(child -> child instanceof ComponentBinding);
+    }
+
+    private static boolean hasSkeleton(DOMElement node) {
+        return !node.getAttributes().isEmpty()
+                || node.getChildNodes().stream().anyMatch(child -> !(child instanceof ComponentBinding));
+    }
+
+    private static boolean isStaticTree(TemplateNode node) {
+        if (node instanceof DOMText) {
+            return true;
         }
+        if (!(node instanceof DOMElement)) {
+            return false;
+        }
+        DOMElement element = (DOMElement) node;
+        return element.getAttributeComponents().isEmpty()
+                && element.getChildNodes().stream().allMatch(TemplateNodeEmitter::isStaticTree);
+    }
 
-        {
-            Value<DomBuilder> tmpBuilder = builder;
-            context.endLocation(node.getLocation());
-            updateBuilder(emit(() -> tmpBuilder.get().close()));
+    private static void encodeSkeleton(TemplateNode node, StringBuilder sb) {
+        if (node instanceof DOMText) {
+            sb.append(DomBuilder.TEMPLATE_TEXT).append(((DOMText) node).getValue())
+                    .append(DomBuilder.TEMPLATE_SEPARATOR);
+            return;
+        }
+        DOMElement element = (DOMElement) node;
+        sb.append(DomBuilder.TEMPLATE_OPEN).append(element.getName()).append(DomBuilder.TEMPLATE_SEPARATOR);
+        for (DOMAttribute attr : element.getAttributes()) {
+            sb.append(DomBuilder.TEMPLATE_ATTRIBUTE).append(attr.getName()).append('=').append(attr.getValue())
+                    .append(DomBuilder.TEMPLATE_SEPARATOR);
+        }
+        for (TemplateNode child : element.getChildNodes()) {
+            if (!(child instanceof ComponentBinding)) {
+                encodeSkeleton(child, sb);
+            }
         }
+        sb.append(DomBuilder.TEMPLATE_CLOSE).append(DomBuilder.TEMPLATE_SEPARATOR);
     }
 
     @Override
@@ -113,6 +205,10 @@ class TemplateNodeEmitter implements TemplateNodeVisitor {
 
     @Override
     public void visit(ComponentBinding node) {
+        emitComponent(node, -1);
+    }
+
+    private void emitComponent(ComponentBinding node, int index) {
         context.location(node.getLocation());
         ReflectClass<?> componentType = findClass(node.getClassName());
         ReflectMethod ctor = componentType.getJMethod("<init>", Slot.class);
@@ -132,7 +228,12 @@ class TemplateNodeEmitter implements TemplateNodeVisitor {
         context.popBoundVars();
 
         Value<DomBuilder> tmpBuilder = builder;
-        updateBuilder(emit(() -> tmpBuilder.get().add(component.get())));
+        String location = context.describeLocation(node.getLocation());
+        if (index >= 0) {
+            updateBuilder(emit(() -> tmpBuilder.get().add(component.get(), location, index)));
+        } else {
+            updateBuilder(emit(() -> tmpBuilder.get().add(component.get(), location)));
+        }
     }
 
     private List<NestedComponentInstance> emitElementComponent(ComponentBinding node, Value<?> component,
@@ -15,6 +15,8 @@
  */
 package org.teavm.flavour.templates.parsing;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.teavm.flavour.expr.type.GenericMethod;
 import org.teavm.flavour.expr.type.ValueType;
 import org.teavm.flavour.expr.type.meta.MethodDescriber;
@@ -29,4 +31,5 @@ class AttributeComponentMetadata extends BaseComponentMetadata {
     ValueType altValueType;
     GenericMethod sam;
     GenericMethod altSam;
+    List<PrimitiveOverload> primitiveOverloads = new ArrayList<>();
 }
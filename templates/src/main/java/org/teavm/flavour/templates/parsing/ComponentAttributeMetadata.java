@@ -15,6 +15,8 @@
  */
 package org.teavm.flavour.templates.parsing;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.teavm.flavour.expr.type.GenericMethod;
 import org.teavm.flavour.expr.type.ValueType;
 import org.teavm.flavour.expr.type.meta.MethodDescriber;
@@ -28,6 +30,7 @@ class ComponentAttributeMetadata {
     MethodDescriber getter;
     GenericMethod sam;
     GenericMethod altSam;
+    List<PrimitiveOverload> primitiveOverloads = new ArrayList<>();
     ValueType valueType;
     ValueType altValueType;
 }
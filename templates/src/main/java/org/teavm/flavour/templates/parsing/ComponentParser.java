@@ -30,6 +30,7 @@ import org.teavm.flavour.expr.type.GenericReference;
 import org.teavm.flavour.expr.type.GenericType;
 import org.teavm.flavour.expr.type.GenericTypeNavigator;
 import org.teavm.flavour.expr.type.MapSubstitutions;
+import org.teavm.flavour.expr.type.Primitive;
 import org.teavm.flavour.expr.type.TypeArgument;
 import org.teavm.flavour.expr.type.TypeVar;
 import org.teavm.flavour.expr.type.ValueType;
@@ -277,7 +278,7 @@ class ComponentParser {
             return;
         }
         if (metadata.type != null) {
-            if (!tryBidirectional(metadata, method)) {
+            if (!tryBidirectional(metadata, method) && !tryPrimitiveOverload(metadata, method)) {
                 error("Method " + methodToString(method.getDescriber()) + " is marked by " + BindContent.class.getName()
                         + " but another method is already bound to content of component " + metadata.cls.getName()
                         + ": " + methodToString(metadata.setter));
@@ -317,7 +318,7 @@ class ComponentParser {
 
         ComponentAttributeMetadata existing = metadata.attributes.get(name);
         if (existing != null) {
-            if (!tryBidirectional(existing, method)) {
+            if (!tryBidirectional(existing, method) && !tryPrimitiveOverload(existing, method)) {
                 error("Method " + methodToString(method.getDescriber()) + " is bound to " + name + " attribute, but "
                         + "it is already bound to another method: " + methodToString(existing.setter));
             }
@@ -421,6 +422,63 @@ class ComponentParser {
         }
     }
 
+    private boolean tryPrimitiveOverload(ComponentAttributeMetadata attribute, GenericMethod method) {
+        PrimitiveOverload main = mergePrimitiveOverload(attribute.type, attribute.setter, attribute.sam,
+                attribute.primitiveOverloads, method);
+        if (main == null) {
+            return false;
+        }
+        attribute.setter = main.setter;
+        attribute.sam = main.sam;
+        attribute.valueType = main.sam.getActualOwner();
+        return true;
+    }
+
+    private boolean tryPrimitiveOverload(AttributeComponentMetadata attribute, GenericMethod method) {
+        PrimitiveOverload main = mergePrimitiveOverload(attribute.type, attribute.setter, attribute.sam,
+                attribute.primitiveOverloads, method);
+        if (main == null) {
+            return false;
+        }
+        attribute.setter = main.setter;
+        attribute.sam = main.sam;
+        attribute.valueType = main.sam.getActualOwner();
+        return true;
+    }
+
+    private PrimitiveOverload mergePrimitiveOverload(ComponentAttributeType type, MethodDescriber setter,
+            GenericMethod existingSam, List<PrimitiveOverload> overloads, GenericMethod method) {
+        GenericMethod sam = getPrimitiveOverloadSam(type, existingSam, method);
+        if (sam == null) {
+            return null;
+        }
+        return PrimitiveOverload.merge(overloads, new PrimitiveOverload(setter, existingSam),
+                new PrimitiveOverload(method.getDescriber(), sam));
+    }
+
+    private GenericMethod getPrimitiveOverloadSam(ComponentAttributeType type, GenericMethod existingSam,
+            GenericMethod method) {
+        if (type != ComponentAttributeType.FUNCTION || !isGetterLike(existingSam)) {
+            return null;
+        }
+        if (method.getActualReturnType() != null || method.getActualParameterTypes().length != 1) {
+            return null;
+        }
+        ValueType valueType = method.getActualParameterTypes()[0];
+        if (!(valueType instanceof GenericClass)) {
+            return null;
+        }
+        GenericMethod sam = typeNavigator.findSingleAbstractMethod((GenericClass) valueType);
+        if (sam == null || !isGetterLike(sam) || isPrimitiveGetter(sam) == isPrimitiveGetter(existingSam)) {
+            return null;
+        }
+        return sam;
+    }
+
+    private static boolean isPrimitiveGetter(GenericMethod sam) {
+        return sam.getActualReturnType() instanceof Primitive;
+    }
+
     private static boolean isGetterLike(GenericMethod sam) {
         return sam.getActualParameterTypes().length == 0 && sam.getActualReturnType() != null;
     }
@@ -309,15 +309,22 @@ public class Parser {
                     attrParse.expr = parseExpr(attr.getValueSegment());
                 }
             }
+            attrParse.setter = attrMeta.setter;
+            GenericMethod sam = attrMeta.sam;
+            PrimitiveOverload overload = selectPrimitiveOverload(attrMeta.primitiveOverloads, attrParse.expr);
+            if (overload != null) {
+                attrParse.setter = overload.setter;
+                sam = overload.sam;
+            }
 
             if (attrParse.meta.valueType != null) {
-                attrParse.type = attrParse.meta.valueType;
+                attrParse.type = sam != null ? sam.getActualOwner() : attrParse.meta.valueType;
                 if (attrParse.type instanceof GenericType) {
                     attrParse.type = ((GenericType) attrParse.type).substitute(typeVars);
                 }
             }
-            if (attrParse.meta.sam != null) {
-                attrParse.sam = attrParse.meta.sam.substitute(typeVars);
+            if (sam != null) {
+                attrParse.sam = sam.substitute(typeVars);
             }
             if (attrParse.meta.altSam != null) {
                 attrParse.altSam = attrParse.meta.altSam.substitute(typeVars);
@@ -433,7 +440,7 @@ public class Parser {
                 if (attrParse.expr == null && attrParse.objectExpr == null) {
                     continue;
                 }
-                MethodDescriber setter = attrParse.meta.setter;
+                MethodDescriber setter = attrParse.setter;
                 GenericClass type = attrParse.sam.getActualOwner().substitute(inference.getSubstitutions());
                 TypedPlan plan = attrParse.expr != null
                         ? compileExpr(attrParse.node.getValueSegment(), attrParse.expr, type)
@@ -539,10 +546,20 @@ public class Parser {
         ObjectExpr objectExpr;
         ValueType type;
         ValueType typeEstimate;
+        MethodDescriber setter;
         GenericMethod sam;
         GenericMethod altSam;
     }
 
+    private PrimitiveOverload selectPrimitiveOverload(List<PrimitiveOverload> overloads, Expr expr) {
+        if (overloads.isEmpty() || expr == null || expr instanceof LambdaExpr) {
+            return null;
+        }
+        TypeEstimator estimator = new TypeEstimator(new TypeInference(typeNavigator), classResolver, typeNavigator,
+                new TemplateScope());
+        return PrimitiveOverload.select(overloads, estimator.estimate(expr, null));
+    }
+
     private void validateNestedComponents(ComponentBinding component, ElementComponentMetadata metadata,
             Element elem, String prefix) {
         for (NestedComponent nestedMetadata : metadata.nestedComponents) {
@@ -629,6 +646,7 @@ public class Parser {
 
         MethodDescriber getter = componentMeta.getter;
         MethodDescriber setter = componentMeta.setter;
+        GenericMethod sam = componentMeta.sam;
         switch (componentMeta.type) {
             case VARIABLE: {
                 String varName = attr.getValue();
@@ -661,11 +679,16 @@ public class Parser {
                     if (expr == null) {
                         break;
                     }
+                    PrimitiveOverload overload = selectPrimitiveOverload(componentMeta.primitiveOverloads, expr);
+                    if (overload != null) {
+                        setter = overload.setter;
+                        sam = overload.sam;
+                    }
 
                     if (expr instanceof LambdaExpr) {
-                        estimator.estimateLambda((LambdaExpr) expr, componentMeta.sam);
+                        estimator.estimateLambda((LambdaExpr) expr, sam);
                     } else {
-                        estimator.estimate(expr, componentMeta.sam.getActualReturnType());
+                        estimator.estimate(expr, sam.getActualReturnType());
                     }
 
                     if (!inference.resolve()) {
@@ -674,14 +697,14 @@ public class Parser {
                     }
 
                     plan = compileExpr(attr.getValueSegment(), expr,
-                            componentMeta.sam.getActualOwner().substitute(inference.getSubstitutions()));
+                            sam.getActualOwner().substitute(inference.getSubstitutions()));
                     if (plan == null) {
                         break;
                     }
                 }
                 ComponentFunctionBinding functionBinding = new ComponentFunctionBinding(setter.getOwner().getName(),
                         setter.getName(), (LambdaPlan) plan.getPlan(),
-                        componentMeta.sam.getDescriber().getOwner().getName());
+                        sam.getDescriber().getOwner().getName());
                 component.getFunctions().add(functionBinding);
 
                 if (componentMeta.type == ComponentAttributeType.BIDIRECTIONAL && expr != null) {
@@ -0,0 +1,83 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates.parsing;
+
+import java.util.List;
+import org.teavm.flavour.expr.type.GenericMethod;
+import org.teavm.flavour.expr.type.Primitive;
+import org.teavm.flavour.expr.type.PrimitiveKind;
+import org.teavm.flavour.expr.type.ValueType;
+import org.teavm.flavour.expr.type.meta.MethodDescriber;
+
+class PrimitiveOverload {
+    MethodDescriber setter;
+    GenericMethod sam;
+
+    PrimitiveOverload(MethodDescriber setter, GenericMethod sam) {
+        this.setter = setter;
+        this.sam = sam;
+    }
+
+    PrimitiveKind getKind() {
+        return ((Primitive) sam.getActualReturnType()).getKind();
+    }
+
+    boolean isPrimitive() {
+        return sam.getActualReturnType() instanceof Primitive;
+    }
+
+    /**
+     * <p>Merges two getter-like bindings of the same attribute, one of which takes primitive supplier.
+     * The primitive one goes to the list of overloads, the other one is returned as the main binding.
+     * Returns <code>null</code> if the list already contains an overload of the same primitive kind.</p>
+     */
+    static PrimitiveOverload merge(List<PrimitiveOverload> overloads, PrimitiveOverload current,
+            PrimitiveOverload candidate) {
+        PrimitiveOverload primitive = candidate.isPrimitive() ? candidate : current;
+        if (find(overloads, primitive.getKind()) != null) {
+            return null;
+        }
+        overloads.add(primitive);
+        return primitive == candidate ? current : candidate;
+    }
+
+    static PrimitiveOverload select(List<PrimitiveOverload> overloads, ValueType type) {
+        if (!(type instanceof Primitive)) {
+            return null;
+        }
+        PrimitiveKind kind = ((Primitive) type).getKind();
+        switch (kind) {
+            case BYTE:
+            case SHORT:
+            case INT: {
+                // Only widen where the textual representation of the value stays the same
+                PrimitiveOverload result = find(overloads, PrimitiveKind.INT);
+                return result != null ? result : find(overloads, PrimitiveKind.LONG);
+            }
+            default:
+                return find(overloads, kind);
+        }
+    }
+
+    private static PrimitiveOverload find(List<PrimitiveOverload> overloads, PrimitiveKind kind) {
+        for (PrimitiveOverload overload : overloads) {
+            if (overload.getKind() == kind) {
+                return overload;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates.server;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import org.teavm.flavour.components.attributes.ComputedAttribute;
+import org.teavm.flavour.components.events.AsyncKeyboardBinder;
+import org.teavm.flavour.components.events.AsyncMouseBinder;
+import org.teavm.flavour.components.events.EventBinder;
+import org.teavm.flavour.components.events.KeyboardBinder;
+import org.teavm.flavour.components.events.MouseBinder;
+import org.teavm.flavour.components.html.BidirectionalCheckedBinder;
+import org.teavm.flavour.components.html.BidirectionalValueBinder;
+import org.teavm.flavour.components.html.CheckedBinder;
+import org.teavm.flavour.components.html.CheckedChangeBinder;
+import org.teavm.flavour.components.html.ClassBinder;
+import org.teavm.flavour.components.html.DebouncedBidirectionalValueBinder;
+import org.teavm.flavour.components.html.EnabledBinder;
+import org.teavm.flavour.components.html.ExposeElementComponent;
+import org.teavm.flavour.components.html.LazyBidirectionalValueBinder;
+import org.teavm.flavour.components.html.LinkComponent;
+import org.teavm.flavour.components.html.StyleBinder;
+import org.teavm.flavour.components.html.TextComponent;
+import org.teavm.flavour.components.html.ValueBinder;
+import org.teavm.flavour.components.html.ValueChangeBinder;
+import org.teavm.flavour.components.standard.ChooseComponent;
+import org.teavm.flavour.components.standard.ForEachComponent;
+import org.teavm.flavour.components.standard.IfComponent;
+import org.teavm.flavour.components.standard.InsertComponent;
+import org.teavm.flavour.components.standard.LazyComponent;
+import org.teavm.flavour.components.standard.LetComponent;
+import org.teavm.flavour.components.standard.VirtualForEachComponent;
+import org.teavm.flavour.components.standard.WithComponent;
+import org.teavm.flavour.expr.Interpreter;
+import org.teavm.flavour.templates.tree.AttributeComponentBinding;
+import org.teavm.flavour.templates.tree.ComponentBinding;
+import org.teavm.flavour.templates.tree.ComponentFunctionBinding;
+import org.teavm.flavour.templates.tree.ComponentPropertyBinding;
+import org.teavm.flavour.templates.tree.ComponentVariableBinding;
+import org.teavm.flavour.templates.tree.DOMAttribute;
+import org.teavm.flavour.templates.tree.DOMElement;
+import org.teavm.flavour.templates.tree.DOMText;
+import org.teavm.flavour.templates.tree.NestedComponentBinding;
+import org.teavm.flavour.templates.tree.TemplateNode;
+import org.teavm.flavour.templates.tree.TemplateNodeVisitor;
+
+class HtmlRenderer implements TemplateNodeVisitor {
+    private static final String SEPARATOR = "<!---->";
+    private static final Object ABSENT = new Object();
+    private static final Set<String> VOID_ELEMENTS = new HashSet<>(Arrays.asList("area", "base", "br", "col",
+            "embed", "hr", "img", "input", "link", "meta", "param", "source", "track", "wbr"));
+    private static final Map<String, BiConsumer<HtmlRenderer, ComponentBinding>> COMPONENTS = new HashMap<>();
+    private static final Map<String, BiConsumer<HtmlRenderer, AttributeComponentBinding>> ATTRIBUTE_COMPONENTS =
+            new HashMap<>();
+    private Writer writer;
+    private boolean hydratable;
+    private Set<String> skippedComponents;
+    private Interpreter interpreter = new Interpreter();
+    private Map<String, Object> variables = interpreter.getVariables();
+
+    static {
+        COMPONENTS.put(ForEachComponent.class.getName(), HtmlRenderer::renderForEach);
+        COMPONENTS.put(IfComponent.class.getName(), HtmlRenderer::renderIf);
+        COMPONENTS.put(ChooseComponent.class.getName(), HtmlRenderer::renderChoose);
+        COMPONENTS.put(WithComponent.class.getName(), HtmlRenderer::renderWith);
+        COMPONENTS.put(LetComponent.class.getName(), HtmlRenderer::renderLet);
+        COMPONENTS.put(TextComponent.class.getName(), HtmlRenderer::renderText);
+        skip(COMPONENTS, InsertComponent.class, VirtualForEachComponent.class, LazyComponent.class);
+
+        ATTRIBUTE_COMPONENTS.put(ComputedAttribute.class.getName(), HtmlRenderer::renderComputedAttribute);
+        for (Class<?> cls : Arrays.asList(ValueBinder.class, BidirectionalValueBinder.class,
+                LazyBidirectionalValueBinder.class, DebouncedBidirectionalValueBinder.class)) {
+            ATTRIBUTE_COMPONENTS.put(cls.getName(), HtmlRenderer::renderValue);
+        }
+        ATTRIBUTE_COMPONENTS.put(CheckedBinder.class.getName(), HtmlRenderer::renderChecked);
+        ATTRIBUTE_COMPONENTS.put(BidirectionalCheckedBinder.class.getName(), HtmlRenderer::renderChecked);
+        ATTRIBUTE_COMPONENTS.put(EnabledBinder.class.getName(), HtmlRenderer::renderEnabled);
+        // Classes and styles are merged into the element attributes by boundValues
+        skip(ATTRIBUTE_COMPONENTS, ClassBinder.class, StyleBinder.class);
+        skip(ATTRIBUTE_COMPONENTS, EventBinder.class, MouseBinder.class, KeyboardBinder.class,
+                AsyncMouseBinder.class, AsyncKeyboardBinder.class, CheckedChangeBinder.class,
+                ValueChangeBinder.class, ExposeElementComponent.class, LinkComponent.class);
+    }
+
+    HtmlRenderer(Writer writer, boolean hydratable, Set<String> skippedComponents) {
+        this.writer = writer;
+        this.hydratable = hydratable;
+        this.skippedComponents = skippedComponents;
+    }
+
+    private static <T> void skip(Map<String, BiConsumer<HtmlRenderer, T>> renderers, Class<?>... classes) {
+        for (Class<?> cls : classes) {
+            renderers.put(cls.getName(), (renderer, node) -> { });
+        }
+    }
+
+    Map<String, Object> getVariables() {
+        return variables;
+    }
+
+    void render(List<TemplateNode> nodes) {
+        for (TemplateNode node : nodes) {
+            node.acceptVisitor(this);
+        }
+    }
+
+    @Override
+    public void visit(DOMElement node) {
+        String boundClasses = boundValues(node, ClassBinder.class, " ");
+        String boundStyles = boundValues(node, StyleBinder.class, "; ");
+        write("<");
+        write(node.getName());
+        for (DOMAttribute attribute : node.getAttributes()) {
+            String value = attribute.getValue();
+            if (boundClasses != null && attribute.getName().equals("class")) {
+                value = value + " " + boundClasses;
+                boundClasses = null;
+            } else if (boundStyles != null && attribute.getName().equals("style")) {
+                value = value + "; " + boundStyles;
+                boundStyles = null;
+            }
+            writeAttribute(attribute.getName(), value);
+        }
+        if (boundClasses != null) {
+            writeAttribute("class", boundClasses);
+        }
+        if (boundStyles != null) {
+            writeAttribute("style", boundStyles);
+        }
+        for (AttributeComponentBinding binding : node.getAttributeComponents()) {
+            renderAttributeComponent(binding);
+        }
+        write(">");
+        if (VOID_ELEMENTS.contains(node.getName()) && node.getChildNodes().isEmpty()) {
+            return;
+        }
+        render(node.getChildNodes());
+        write("</");
+        write(node.getName());
+        write(">");
+    }
+
+    @Override
+    public void visit(DOMText node) {
+        write(escape(node.getValue(), false));
+    }
+
+    @Override
+    public void visit(ComponentBinding node) {
+        if (hydratable) {
+            write(SEPARATOR);
+        }
+        renderComponent(node);
+        if (hydratable) {
+            write(SEPARATOR);
+        }
+    }
+
+    private void renderComponent(ComponentBinding node) {
+        resolve(COMPONENTS, node.getClassName()).accept(this, node);
+    }
+
+    private <T> BiConsumer<HtmlRenderer, T> resolve(Map<String, BiConsumer<HtmlRenderer, T>> renderers,
+            String className) {
+        BiConsumer<HtmlRenderer, T> renderer = renderers.get(className);
+        if (renderer != null) {
+            return renderer;
+        }
+        if (skippedComponents.contains(className)) {
+            return (self, node) -> { };
+        }
+        throw new IllegalStateException("Component " + className + " can't be rendered on the server. "
+                + "Use ServerRenderer.skipComponent to render it as empty markup");
+    }
+
+    private void renderIf(ComponentBinding node) {
+        if (Boolean.TRUE.equals(evaluate(node.getComputations(), "setCondition"))) {
+            render(node.getContentNodes());
+        }
+    }
+
+    private void renderText(ComponentBinding node) {
+        write(escape(String.valueOf(evaluate(node.getComputations(), "setValue")), false));
+    }
+
+    private void renderForEach(ComponentBinding node) {
+        Object collection = evaluate(node.getComputations(), "setCollection");
+        if (collection == null) {
+            return;
+        }
+        String elementVar = variableName(node.getVariables(), "getElementVariable");
+        String indexVar = variableName(node.getVariables(), "getIndexVariable");
+        Object oldElement = saveVariable(elementVar);
+        Object oldIndex = indexVar != null ? saveVariable(indexVar) : null;
+        int index = 0;
+        for (Object item : (Iterable<?>) collection) {
+            variables.put(elementVar, item);
+            if (indexVar != null) {
+                variables.put(indexVar, index++);
+            }
+            render(node.getContentNodes());
+        }
+        restoreVariable(elementVar, oldElement);
+        if (indexVar != null) {
+            restoreVariable(indexVar, oldIndex);
+        }
+    }
+
+    private void renderChoose(ComponentBinding node) {
+        for (ComponentBinding clause : nested(node, "setClauses")) {
+            if (Boolean.TRUE.equals(evaluate(clause.getComputations(), "setPredicate"))) {
+                render(clause.getContentNodes());
+                return;
+            }
+        }
+        for (ComponentBinding otherwise : nested(node, "setOtherwiseClause")) {
+            render(otherwise.getContentNodes());
+        }
+    }
+
+    private void renderWith(ComponentBinding node) {
+        String name = variableName(node.getVariables(), "getVariable");
+        Object oldValue = saveVariable(name);
+        variables.put(name, evaluate(node.getComputations(), "setValue"));
+        render(node.getContentNodes());
+        restoreVariable(name, oldValue);
+    }
+
+    private void renderLet(ComponentBinding node) {
+        List<ComponentBinding> definitions = nested(node, "setDefinitions");
+        String[] names = new String[definitions.size()];
+        Object[] oldValues = new Object[definitions.size()];
+        for (int i = 0; i < definitions.size(); ++i) {
+            ComponentBinding definition = definitions.get(i);
+            names[i] = variableName(definition.getVariables(), "getValue");
+            oldValues[i] = saveVariable(names[i]);
+            variables.put(names[i], evaluate(definition.getComputations(), "setComputation"));
+        }
+        for (ComponentBinding body : nested(node, "setBody")) {
+            render(body.getContentNodes());
+        }
+        for (int i = definitions.size() - 1; i >= 0; --i) {
+            restoreVariable(names[i], oldValues[i]);
+        }
+    }
+
+    private void renderAttributeComponent(AttributeComponentBinding binding) {
+        resolve(ATTRIBUTE_COMPONENTS, binding.getClassName()).accept(this, binding);
+    }
+
+    private void renderComputedAttribute(AttributeComponentBinding binding) {
+        writeAttribute(binding.getName(), String.valueOf(evaluate(binding.getFunctions(), "setValue")));
+    }
+
+    private void renderValue(AttributeComponentBinding binding) {
+        writeAttribute("value", String.valueOf(evaluate(binding.getFunctions(), "setValue")));
+    }
+
+    private void renderChecked(AttributeComponentBinding binding) {
+        if (Boolean.TRUE.equals(evaluate(binding.getFunctions(), "setValue"))) {
+            write(" checked");
+        }
+    }
+
+    private void renderEnabled(AttributeComponentBinding binding) {
+        if (Boolean.FALSE.equals(evaluate(binding.getFunctions(), "setValue"))) {
+            write(" disabled");
+        }
+    }
+
+    /**
+     * <p>Joins classes enabled by <code>html:class-*</code> or style properties set by <code>html:style-*</code>,
+     * which are merged with the static attribute of the element.</p>
+     */
+    private String boundValues(DOMElement node, Class<?> binderClass, String separator) {
+        StringBuilder sb = null;
+        for (AttributeComponentBinding binding : node.getAttributeComponents()) {
+            if (!binding.getClassName().equals(binderClass.getName())) {
+                continue;
+            }
+            Object value = evaluate(binding.getFunctions(), "setValue");
+            String name = binding.getName().substring(binding.getName().indexOf('-') + 1);
+            String part;
+            if (binderClass == ClassBinder.class) {
+                part = Boolean.TRUE.equals(value) ? name : null;
+            } else {
+                part = value != null ? name + ": " + value : null;
+            }
+            if (part != null) {
+                if (sb == null) {
+                    sb = new StringBuilder();
+                } else {
+                    sb.append(separator);
+                }
+                sb.append(part);
+            }
+        }
+        return sb != null ? sb.toString() : null;
+    }
+
+    private Object evaluate(List<ComponentFunctionBinding> functions, String methodName) {
+        ComponentFunctionBinding function = find(functions, methodName);
+        if (function == null) {
+            return null;
+        }
+        return interpreter.interpret(function.getPlan().getBody());
+    }
+
+    private String variableName(List<ComponentVariableBinding> bindings, String methodName) {
+        ComponentVariableBinding binding = find(bindings, methodName);
+        return binding != null ? binding.getName() : null;
+    }
+
+    private List<ComponentBinding> nested(ComponentBinding node, String methodName) {
+        NestedComponentBinding binding = find(node.getNestedComponents(), methodName);
+        return binding != null ? binding.getComponents() : Collections.emptyList();
+    }
+
+    private static <T extends ComponentPropertyBinding> T find(List<T> bindings, String methodName) {
+        for (T binding : bindings) {
+            if (binding.getMethodName().equals(methodName)) {
+                return binding;
+            }
+        }
+        return null;
+    }
+
+    private Object saveVariable(String name) {
+        Object value = variables.get(name);
+        return value != null || variables.containsKey(name) ? value : ABSENT;
+    }
+
+    private void restoreVariable(String name, Object oldValue) {
+        if (oldValue != ABSENT) {
+            variables.put(name, oldValue);
+        } else {
+            variables.remove(name);
+        }
+    }
+
+    private void writeAttribute(String name, String value) {
+        write(" ");
+        write(name);
+        write("=\"");
+        write(escape(value, true));
+        write("\"");
+    }
+
+    private void write(String text) {
+        try {
+            writer.write(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String escape(String text, boolean attribute) {
+        StringBuilder sb = null;
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            String replacement;
+            switch (c) {
+                case '&':
+                    replacement = "&amp;";
+                    break;
+                case '<':
+                    replacement = "&lt;";
+                    break;
+                case '>':
+                    replacement = "&gt;";
+                    break;
+                case '"':
+                    replacement = attribute ? "&quot;" : null;
+                    break;
+                default:
+                    replacement = null;
+                    break;
+            }
+            if (replacement != null) {
+                if (sb == null) {
+                    sb = new StringBuilder(text.length() + 16);
+                    sb.append(text, 0, i);
+                }
+                sb.append(replacement);
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb != null ? sb.toString() : text;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.teavm.flavour.expr.ClassPathClassResolver;
+import org.teavm.flavour.expr.Diagnostic;
+import org.teavm.flavour.expr.type.meta.ClassPathClassDescriberRepository;
+import org.teavm.flavour.templates.BindTemplate;
+import org.teavm.flavour.templates.parsing.ClassPathResourceProvider;
+import org.teavm.flavour.templates.parsing.Parser;
+import org.teavm.flavour.templates.tree.TemplateNode;
+
+/**
+ * <p>Renders templates to HTML on the JVM, so that a server can send markup before the client bundle loads.
+ * Takes the same models as {@link org.teavm.flavour.templates.Templates#bind(Object, String)}, parses
+ * the template referenced by {@link BindTemplate} once per model class and evaluates bindings with
+ * the expression interpreter.</p>
+ *
+ * <p>Elements, text, computed attributes, value/checked/enabled binders and standard components are rendered.
+ * Event handlers are skipped, as well as <code>std:insert</code>, <code>std:virtual-foreach</code>
+ * and <code>std:lazy</code>, which produce no markup. Other components are unknown to the renderer
+ * and fail rendering with {@link IllegalStateException}, unless they are registered with
+ * {@link #skipComponent(String)}.</p>
+ */
+public class ServerRenderer {
+    private ClassLoader classLoader;
+    private Map<Class<?>, List<TemplateNode>> templates = new ConcurrentHashMap<>();
+    private volatile boolean hydratable;
+    private Set<String> skippedComponents = ConcurrentHashMap.newKeySet();
+
+    public ServerRenderer() {
+        this(ServerRenderer.class.getClassLoader());
+    }
+
+    public ServerRenderer(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    public boolean isHydratable() {
+        return hydratable;
+    }
+
+    /**
+     * <p>When enabled, output of every component is surrounded by empty comments, so that
+     * {@link org.teavm.flavour.templates.Templates#hydrate(Object, org.teavm.jso.dom.html.HTMLElement)} can tell
+     * text produced by different components apart after the browser merges adjacent text nodes.</p>
+     */
+    public void setHydratable(boolean hydratable) {
+        this.hydratable = hydratable;
+    }
+
+    /**
+     * <p>Makes the renderer produce no markup for the given component class, which is useful for
+     * custom components that only make sense in the browser.</p>
+     */
+    public void skipComponent(String className) {
+        skippedComponents.add(className);
+    }
+
+    public String render(Object model) {
+        StringWriter writer = new StringWriter();
+        try {
+            render(model, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    public void render(Object model, Writer writer) throws IOException {
+        if (model == null) {
+            throw new IllegalArgumentException("Model must not be null");
+        }
+        List<TemplateNode> template = templates.computeIfAbsent(model.getClass(), this::parse);
+        HtmlRenderer renderer = new HtmlRenderer(writer, hydratable, skippedComponents);
+        renderer.getVariables().put("this", model);
+        try {
+            renderer.render(template);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private List<TemplateNode> parse(Class<?> modelClass) {
+        BindTemplate annot = modelClass.getAnnotation(BindTemplate.class);
+        if (annot == null) {
+            throw new IllegalArgumentException("Class " + modelClass.getName() + " is not annotated with "
+                    + BindTemplate.class.getName());
+        }
+
+        String path = annot.value();
+        Parser parser = new Parser(new ClassPathClassDescriberRepository(classLoader),
+                new ClassPathClassResolver(classLoader), new ClassPathResourceProvider(classLoader));
+        List<TemplateNode> fragment;
+        try (InputStream input = classLoader.getResourceAsStream(path)) {
+            if (input == null) {
+                throw new IllegalArgumentException("Can't create template for " + modelClass.getName()
+                        + ": template " + path + " was not found");
+            }
+            fragment = parser.parse(new InputStreamReader(input, "UTF-8"), modelClass.getName());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Can't create template for " + modelClass.getName()
+                    + ": template " + path + " could not be read", e);
+        }
+
+        if (!parser.wasSuccessful()) {
+            StringBuilder sb = new StringBuilder("Template " + path + " has errors:");
+            for (Diagnostic diagnostic : parser.getDiagnostics()) {
+                sb.append("\n  at ").append(diagnostic.getStart()).append(": ").append(diagnostic.getMessage());
+            }
+            throw new IllegalStateException(sb.toString());
+        }
+        return fragment;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.components.standard.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.flavour.templates.BindTemplate;
+import org.teavm.flavour.templates.Component;
+import org.teavm.flavour.templates.Templates;
+import org.teavm.jso.browser.Performance;
+import org.teavm.jso.browser.Window;
+import org.teavm.jso.dom.html.HTMLDocument;
+import org.teavm.jso.dom.html.HTMLElement;
+import org.teavm.junit.SkipJVM;
+import org.teavm.junit.TeaVMTestRunner;
+
+/**
+ * <p>Compares plain and keyed <code>std:foreach</code> reconciliation on typical reordering workloads.
+ * The module's surefire configuration excludes <code>*Benchmark</code> classes from the regular test run,
+ * launch it explicitly with <code>-Dtest=ForEachBenchmark</code>.</p>
+ */
+@RunWith(TeaVMTestRunner.class)
+@SkipJVM
+public class ForEachBenchmark {
+    private static final int ROW_COUNT = 1000;
+    private static final int ITERATIONS = 20;
+    private HTMLDocument document;
+
+    public ForEachBenchmark() {
+        document = Window.current().getDocument();
+    }
+
+    @Test
+    public void shuffle() {
+        Random random = new Random(0);
+        run("shuffle", rows -> Collections.shuffle(rows, random));
+    }
+
+    @Test
+    public void reverse() {
+        run("reverse", Collections::reverse);
+    }
+
+    @Test
+    public void swap() {
+        run("swap", rows -> Collections.swap(rows, 1, rows.size() - 2));
+    }
+
+    private void run(String name, Consumer<List<Row>> workload) {
+        double plain = measure(new PlainModel(), workload);
+        double keyed = measure(new KeyedModel(), workload);
+        System.out.println("foreach " + name + " (" + ROW_COUNT + " rows): plain " + format(plain)
+                + " ms, keyed " + format(keyed) + " ms");
+    }
+
+    private double measure(RowModel model, Consumer<List<Row>> workload) {
+        HTMLElement root = document.createElement("div");
+        document.getBody().appendChild(root);
+        for (int i = 0; i < ROW_COUNT; ++i) {
+            model.rows.add(new Row(i));
+        }
+        Component component = Templates.bind(model, root);
+
+        double start = Performance.now();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            workload.accept(model.rows);
+            component.render();
+        }
+        double time = (Performance.now() - start) / ITERATIONS;
+
+        component.destroy();
+        root.delete();
+        return time;
+    }
+
+    private static String format(double time) {
+        return String.valueOf(Math.round(time * 100) / 100.0);
+    }
+
+    public static class Row {
+        public final int id;
+        public final String label;
+
+        Row(int id) {
+            this.id = id;
+            label = "row-" + id;
+        }
+    }
+
+    static class RowModel {
+        public List<Row> rows = new ArrayList<>();
+    }
+
+    @BindTemplate("templates/foreach-benchmark.html")
+    static class PlainModel extends RowModel {
+    }
+
+    @BindTemplate("templates/foreach-keyed-benchmark.html")
+    static class KeyedModel extends RowModel {
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.components.standard.test;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.flavour.templates.BindTemplate;
+import org.teavm.flavour.templates.Component;
+import org.teavm.flavour.templates.Templates;
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSObject;
+import org.teavm.jso.browser.Window;
+import org.teavm.jso.dom.html.HTMLDocument;
+import org.teavm.jso.dom.html.HTMLElement;
+import org.teavm.junit.SkipJVM;
+import org.teavm.junit.TeaVMTestRunner;
+
+@RunWith(TeaVMTestRunner.class)
+@SkipJVM
+public class LazyComponentTest {
+    private HTMLDocument document;
+    private HTMLElement root;
+
+    public LazyComponentTest() {
+        document = Window.current().getDocument();
+        root = document.createElement("div");
+        document.getBody().appendChild(root);
+    }
+
+    @Test
+    public void rendersContentOnceVisible() {
+        JSObject observers = installObserverStub();
+        try {
+            LazyModel model = new LazyModel();
+            Component component = Templates.bind(model, root);
+            assertEquals("", root.getTextContent());
+
+            model.text = "b";
+            component.render();
+            assertEquals("", root.getTextContent());
+
+            changeVisibility(observers, true);
+            assertEquals("b", root.getTextContent());
+
+            component.destroy();
+            assertEquals("Observer disconnected on destroy", 0, countConnected(observers));
+        } finally {
+            uninstallObserverStub();
+        }
+    }
+
+    @Test
+    public void catchesUpWithSuspendedUpdates() {
+        JSObject observers = installObserverStub();
+        try {
+            LazyModel model = new LazyModel();
+            model.suspend = true;
+            Component component = Templates.bind(model, root);
+            changeVisibility(observers, true);
+            assertEquals("a", root.getTextContent());
+
+            changeVisibility(observers, false);
+            model.text = "b";
+            component.render();
+            assertEquals("a", root.getTextContent());
+
+            changeVisibility(observers, true);
+            assertEquals("b", root.getTextContent());
+
+            model.text = "c";
+            component.render();
+            assertEquals("c", root.getTextContent());
+            component.destroy();
+        } finally {
+            uninstallObserverStub();
+        }
+    }
+
+    @BindTemplate("templates/lazy-suspends-offscreen.html")
+    static class LazyModel {
+        public String text = "a";
+        public boolean suspend;
+    }
+
+    @JSBody(script = ""
+            + "var observers = [];"
+            + "window.originalIntersectionObserver = window.IntersectionObserver;"
+            + "window.IntersectionObserver = function(callback) {"
+            + "this.callback = callback;"
+            + "this.connected = true;"
+            + "observers.push(this);"
+            + "};"
+            + "window.IntersectionObserver.prototype.observe = function() {};"
+            + "window.IntersectionObserver.prototype.disconnect = function() { this.connected = false; };"
+            + "return observers;")
+    private static native JSObject installObserverStub();
+
+    @JSBody(script = ""
+            + "if (window.originalIntersectionObserver) {"
+            + "window.IntersectionObserver = window.originalIntersectionObserver;"
+            + "} else {"
+            + "delete window.IntersectionObserver;"
+            + "}"
+            + "delete window.originalIntersectionObserver;")
+    private static native void uninstallObserverStub();
+
+    @JSBody(params = { "observers", "visible" }, script = ""
+            + "observers.forEach(function(observer) {"
+            + "if (observer.connected) {"
+            + "observer.callback([{ isIntersecting: visible }]);"
+            + "}"
+            + "});")
+    private static native void changeVisibility(JSObject observers, boolean visible);
+
+    @JSBody(params = "observers", script = ""
+            + "return observers.filter(function(observer) { return observer.connected; }).length;")
+    private static native int countConnected(JSObject observers);
+}
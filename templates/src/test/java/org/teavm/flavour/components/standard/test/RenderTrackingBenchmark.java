@@ -0,0 +1,99 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.components.standard.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.flavour.templates.BindTemplate;
+import org.teavm.flavour.templates.Component;
+import org.teavm.flavour.templates.DomWriteQueue;
+import org.teavm.flavour.templates.MemoCache;
+import org.teavm.flavour.templates.Templates;
+import org.teavm.jso.browser.Performance;
+import org.teavm.jso.browser.Window;
+import org.teavm.jso.dom.html.HTMLDocument;
+import org.teavm.jso.dom.html.HTMLElement;
+import org.teavm.junit.SkipJVM;
+import org.teavm.junit.TeaVMTestRunner;
+
+/**
+ * <p>Measures re-rendering of a <code>std:foreach</code> whose rows use neither shared expressions nor
+ * <code>@Memo</code> getters, first with no per-render tracking at all, then with the memo render pass that
+ * starts once any <code>MemoCache</code> exists, then additionally with the DOM write queue. The first number
+ * should not be worse than the others, which approximate the former unconditional tracking.
+ * The module's surefire configuration excludes <code>*Benchmark</code> classes from the regular test run,
+ * launch it explicitly with <code>-Dtest=RenderTrackingBenchmark</code>.</p>
+ */
+@RunWith(TeaVMTestRunner.class)
+@SkipJVM
+public class RenderTrackingBenchmark {
+    private static final int ROW_COUNT = 1000;
+    private static final int ITERATIONS = 50;
+    private HTMLDocument document;
+
+    public RenderTrackingBenchmark() {
+        document = Window.current().getDocument();
+    }
+
+    @Test
+    public void foreach() {
+        // Creating a memo cache can't be undone, so the untracked run must go first
+        double untracked = measure();
+        new MemoCache();
+        double memo = measure();
+        DomWriteQueue.setEnabled(true);
+        double memoAndQueue;
+        try {
+            memoAndQueue = measure();
+        } finally {
+            DomWriteQueue.setEnabled(false);
+        }
+        System.out.println("foreach re-render (" + ROW_COUNT + " rows): untracked " + format(untracked)
+                + " ms, memo pass " + format(memo) + " ms, memo pass and write queue " + format(memoAndQueue)
+                + " ms");
+    }
+
+    private double measure() {
+        HTMLElement root = document.createElement("div");
+        document.getBody().appendChild(root);
+        Model model = new Model();
+        for (int i = 0; i < ROW_COUNT; ++i) {
+            model.rows.add(new ForEachBenchmark.Row(i));
+        }
+        Component component = Templates.bind(model, root);
+
+        double start = Performance.now();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            component.render();
+        }
+        double time = (Performance.now() - start) / ITERATIONS;
+
+        component.destroy();
+        root.delete();
+        return time;
+    }
+
+    private static String format(double time) {
+        return String.valueOf(Math.round(time * 100) / 100.0);
+    }
+
+    @BindTemplate("templates/foreach-benchmark.html")
+    static class Model {
+        public List<ForEachBenchmark.Row> rows = new ArrayList<>();
+    }
+}
@@ -18,11 +18,14 @@ package org.teavm.flavour.components.standard.test;
 import static org.junit.Assert.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.teavm.flavour.templates.BindTemplate;
 import org.teavm.flavour.templates.Component;
+import org.teavm.flavour.templates.ComponentPool;
+import org.teavm.flavour.templates.Slot;
 import org.teavm.flavour.templates.Templates;
 import org.teavm.jso.browser.Window;
 import org.teavm.jso.dom.html.HTMLDocument;
@@ -110,6 +113,204 @@ public class StandardComponentsTest {
         public List<String> collection = new ArrayList<>();
     }
 
+    @Test
+    public void keyedForeachWorks() {
+        ForeachKeyedWorksModel model = new ForeachKeyedWorksModel();
+        model.collection.addAll(Arrays.asList("foo", "bar", "baz", "qqq"));
+        Component component = Templates.bind(model, root);
+        String[] values = toStrings(root.getElementsByTagName("div"));
+        assertArrayEquals("Initial list construction", new String[] { "foo", "bar", "baz", "qqq" }, values);
+        List<HTMLElement> initialElements = toList(root.getElementsByTagName("div"));
+
+        Collections.reverse(model.collection);
+        component.render();
+        values = toStrings(root.getElementsByTagName("div"));
+        assertArrayEquals("Reverse list", new String[] { "qqq", "baz", "bar", "foo" }, values);
+        List<HTMLElement> elements = toList(root.getElementsByTagName("div"));
+        for (int i = 0; i < elements.size(); ++i) {
+            assertSame("Element reused after reverse", initialElements.get(elements.size() - i - 1),
+                    elements.get(i));
+        }
+
+        model.collection.add(2, "www");
+        model.collection.remove("qqq");
+        Collections.swap(model.collection, 0, 3);
+        component.render();
+        values = toStrings(root.getElementsByTagName("div"));
+        assertArrayEquals("Insert, remove and swap", new String[] { "foo", "www", "bar", "baz" }, values);
+        elements = toList(root.getElementsByTagName("div"));
+        assertSame("Element reused after swap", initialElements.get(0), elements.get(0));
+        assertSame("Element reused after swap", initialElements.get(2), elements.get(3));
+
+        model.collection.clear();
+        component.render();
+        assertEquals("Clear list", 0, toList(root.getElementsByTagName("div")).size());
+    }
+
+    @BindTemplate("templates/foreach-keyed-works.html")
+    static class ForeachKeyedWorksModel {
+        public List<String> collection = new ArrayList<>();
+    }
+
+    @Test
+    public void pooledForeachReusesComponents() {
+        ForeachPooledModel model = new ForeachPooledModel();
+        model.collection.addAll(Arrays.asList("foo", "bar", "baz"));
+        Component component = Templates.bind(model, root);
+        List<HTMLElement> initialElements = toList(root.getElementsByTagName("div"));
+
+        model.collection.clear();
+        component.render();
+        assertEquals("Clear list", 0, toList(root.getElementsByTagName("div")).size());
+
+        int hits = ComponentPool.getTotalHitCount();
+        model.collection.addAll(Arrays.asList("www", "qqq"));
+        component.render();
+        String[] values = toStrings(root.getElementsByTagName("div"));
+        assertArrayEquals("Rows re-bound", new String[] { "www", "qqq" }, values);
+        assertEquals("Pool hits", hits + 2, ComponentPool.getTotalHitCount());
+        for (HTMLElement element : toList(root.getElementsByTagName("div"))) {
+            assertTrue("Element reused", initialElements.contains(element));
+        }
+    }
+
+    @BindTemplate("templates/foreach-pooled.html")
+    static class ForeachPooledModel {
+        public List<String> collection = new ArrayList<>();
+    }
+
+    @Test
+    public void keyedForeachWorksWithAnchors() {
+        Slot.setAnchorsEnabled(true);
+        try {
+            ForeachKeyedWorksModel model = new ForeachKeyedWorksModel();
+            model.collection.addAll(Arrays.asList("foo", "bar", "baz"));
+            Component component = Templates.bind(model, root);
+
+            model.collection.add(1, "www");
+            model.collection.add("qqq");
+            component.render();
+            String[] values = toStrings(root.getElementsByTagName("div"));
+            assertArrayEquals("Insert", new String[] { "foo", "www", "bar", "baz", "qqq" }, values);
+
+            Collections.reverse(model.collection);
+            component.render();
+            values = toStrings(root.getElementsByTagName("div"));
+            assertArrayEquals("Reverse", new String[] { "qqq", "baz", "bar", "www", "foo" }, values);
+        } finally {
+            Slot.setAnchorsEnabled(false);
+        }
+    }
+
+    @Test
+    public void keyedForeachMovesAroundEmptyRows() {
+        moveAroundEmptyRows(false, false);
+        moveAroundEmptyRows(true, true);
+        moveAroundEmptyRows(false, true);
+    }
+
+    private void moveAroundEmptyRows(boolean anchorsOnBind, boolean anchorsOnMove) {
+        Slot.setAnchorsEnabled(anchorsOnBind);
+        try {
+            ForeachKeyedEmptyRowsModel model = new ForeachKeyedEmptyRowsModel();
+            model.collection.addAll(Arrays.asList("a", "-e", "x", "b"));
+            Component component = Templates.bind(model, root);
+            Slot.setAnchorsEnabled(anchorsOnMove);
+
+            model.collection.clear();
+            model.collection.addAll(Arrays.asList("a", "x", "-e", "b"));
+            component.render();
+            String[] values = toStrings(root.getElementsByTagName("div"));
+            assertArrayEquals("Move before empty row", new String[] { "a", "x", "b" }, values);
+
+            model.collection.clear();
+            model.collection.addAll(Arrays.asList("-e", "b", "x", "a"));
+            component.render();
+            values = toStrings(root.getElementsByTagName("div"));
+            assertArrayEquals("Reverse", new String[] { "b", "x", "a" }, values);
+            component.destroy();
+        } finally {
+            Slot.setAnchorsEnabled(false);
+        }
+    }
+
+    @BindTemplate("templates/foreach-keyed-empty-rows.html")
+    static class ForeachKeyedEmptyRowsModel {
+        public List<String> collection = new ArrayList<>();
+    }
+
+    @Test
+    public void virtualForeachRendersVisibleRows() {
+        root.getStyle().setProperty("height", "100px");
+        root.getStyle().setProperty("overflow", "auto");
+        VirtualForeachWorksModel model = new VirtualForeachWorksModel();
+        for (int i = 0; i < 1000; ++i) {
+            model.collection.add("item" + i);
+        }
+        Component component = Templates.bind(model, root);
+        component.render();
+
+        String[] values = toStrings(root.getElementsByTagName("p"));
+        assertArrayEquals("Initial window", new String[] { "0:item0", "1:item1", "2:item2", "3:item3",
+                "4:item4", "5:item5" }, values);
+        assertSpacerHeights(0, 994 * 20);
+
+        root.setScrollTop(400);
+        component.render();
+        values = toStrings(root.getElementsByTagName("p"));
+        assertArrayEquals("Window after scroll", new String[] { "20:item20", "21:item21", "22:item22",
+                "23:item23", "24:item24", "25:item25" }, values);
+        assertSpacerHeights(400, 974 * 20);
+
+        model.collection.set(21, "changed");
+        component.render();
+        values = toStrings(root.getElementsByTagName("p"));
+        assertArrayEquals("Row rebound", new String[] { "20:item20", "21:changed", "22:item22",
+                "23:item23", "24:item24", "25:item25" }, values);
+        assertSpacerHeights(400, 974 * 20);
+
+        model.collection.subList(10, 1000).clear();
+        root.setScrollTop(100);
+        component.render();
+        values = toStrings(root.getElementsByTagName("p"));
+        assertArrayEquals("Window shrinks with collection", new String[] { "5:item5", "6:item6", "7:item7",
+                "8:item8", "9:item9" }, values);
+        assertSpacerHeights(100, 0);
+    }
+
+    private void assertSpacerHeights(int top, int bottom) {
+        List<HTMLElement> spacers = toList(root.getElementsByTagName("div"));
+        assertEquals("Spacer count", 2, spacers.size());
+        assertEquals("Top spacer height", top + "px", spacers.get(0).getStyle().getPropertyValue("height"));
+        assertEquals("Bottom spacer height", bottom + "px", spacers.get(1).getStyle().getPropertyValue("height"));
+    }
+
+    @BindTemplate("templates/virtual-foreach-works.html")
+    static class VirtualForeachWorksModel {
+        public List<String> collection = new ArrayList<>();
+    }
+
+    @Test
+    public void virtualForeachUsesRowSpacersInTables() {
+        VirtualForeachTableRowsModel model = new VirtualForeachTableRowsModel();
+        for (int i = 0; i < 100; ++i) {
+            model.collection.add("item" + i);
+        }
+        Component component = Templates.bind(model, root);
+        component.render();
+
+        HTMLElement rows = document.getElementById("rows");
+        assertTrue("Rows rendered", rows.getChildNodes().getLength() > 2);
+        for (int i = 0; i < rows.getChildNodes().getLength(); ++i) {
+            assertEquals("Child " + i, "TR", rows.getChildNodes().get(i).getNodeName());
+        }
+    }
+
+    @BindTemplate("templates/virtual-foreach-table-rows.html")
+    static class VirtualForeachTableRowsModel {
+        public List<String> collection = new ArrayList<>();
+    }
+
     @Test
     public void chooseWorks() {
         ChooseWorksModel model = new ChooseWorksModel();
@@ -0,0 +1,78 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates.server.test;
+
+import java.io.IOException;
+import java.io.Writer;
+import org.junit.Test;
+import org.teavm.flavour.templates.server.ServerRenderer;
+
+/**
+ * <p>Measures how many pages per second {@link ServerRenderer} produces for a page with a list of 100 items.
+ * The module's surefire configuration excludes <code>*Benchmark</code> classes from the regular test run,
+ * launch it explicitly with <code>-Dtest=ServerRenderBenchmark</code>.</p>
+ */
+public class ServerRenderBenchmark {
+    private static final int ITEM_COUNT = 100;
+    private static final int WARMUP_PAGES = 2000;
+    private static final int PAGES = 10000;
+
+    @Test
+    public void renderPage() throws IOException {
+        ServerRendererTest.PageModel model = new ServerRendererTest.PageModel();
+        for (int i = 0; i < ITEM_COUNT; ++i) {
+            model.items.add("Item #" + i);
+        }
+        ServerRenderer renderer = new ServerRenderer();
+        CountingWriter writer = new CountingWriter();
+
+        for (int i = 0; i < WARMUP_PAGES; ++i) {
+            renderer.render(model, writer);
+        }
+        writer.count = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < PAGES; ++i) {
+            renderer.render(model, writer);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("server render (" + ITEM_COUNT + " items): " + Math.round(PAGES / seconds) + " pages/sec, "
+                + writer.count / PAGES + " chars per page");
+    }
+
+    static class CountingWriter extends Writer {
+        long count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str) {
+            count += str.length();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates.server.test;
+
+import static org.junit.Assert.assertEquals;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.teavm.flavour.templates.BindTemplate;
+import org.teavm.flavour.templates.server.ServerRenderer;
+import org.teavm.flavour.templates.test.ValueCopyComponent;
+
+public class ServerRendererTest {
+    private ServerRenderer renderer = new ServerRenderer();
+
+    @Test
+    public void rendersPage() {
+        PageModel model = new PageModel();
+        model.items.addAll(Arrays.asList("a & b", "<c>"));
+
+        assertEquals("<div class=\"page\" title=\"Tasks\"><h1>Tasks</h1>"
+                + "<ul><li data-index=\"0\">a &amp; b</li><li data-index=\"1\">&lt;c&gt;</li></ul>"
+                + "<p>many</p><span class=\"count-2\">2</span>"
+                + "<input type=\"checkbox\"><button>Done</button></div>", render(model));
+    }
+
+    @Test
+    public void rendersAlternativeBranches() {
+        PageModel model = new PageModel();
+        model.title = "\"quoted\"";
+        model.items.add("x");
+        model.complete();
+
+        assertEquals("<div class=\"page\" title=\"&quot;quoted&quot;\"><h1>\"quoted\"</h1>"
+                + "<ul><li data-index=\"0\">x</li></ul>"
+                + "<p>one</p><span class=\"count-1\">1</span>"
+                + "<input type=\"checkbox\" checked disabled><button>Done</button></div>", render(model));
+    }
+
+    @Test
+    public void skipsEmptyCollection() {
+        PageModel model = new PageModel();
+        assertEquals("<div class=\"page\" title=\"Tasks\"><h1>Tasks</h1>"
+                + "<p>many</p><span class=\"count-0\">0</span>"
+                + "<input type=\"checkbox\"><button>Done</button></div>", render(model));
+    }
+
+    @Test
+    public void streamsToWriter() throws IOException {
+        PageModel model = new PageModel();
+        StringWriter writer = new StringWriter();
+        renderer.render(model, writer);
+        assertEquals(renderer.render(model), writer.toString());
+    }
+
+    @Test
+    public void separatesComponentsWhenHydratable() {
+        PageModel model = new PageModel();
+        model.items.add("x");
+        renderer.setHydratable(true);
+
+        assertEquals("<div class=\"page\" title=\"Tasks\"><h1><!---->Tasks<!----></h1>"
+                + "<!----><ul><!----><li data-index=\"0\"><!---->x<!----></li><!----></ul><!---->"
+                + "<!----><p>one</p><!---->"
+                + "<!----><span class=\"count-1\"><!---->1<!----></span><!---->"
+                + "<input type=\"checkbox\"><button>Done</button></div>", render(model));
+    }
+
+    @Test
+    public void mergesBoundClassesAndStyles() {
+        StyleModel model = new StyleModel();
+        assertEquals("<div class=\"box active\" style=\"width: 10px\"></div>", render(model));
+
+        model.active = false;
+        model.width = null;
+        assertEquals("<div class=\"box done\"></div>", render(model));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsUnknownComponent() {
+        renderer.render(new CustomComponentModel());
+    }
+
+    @Test
+    public void skipsRegisteredComponent() {
+        renderer.skipComponent(ValueCopyComponent.class.getName());
+        assertEquals("<div>Tasks</div>", render(new CustomComponentModel()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsModelWithoutTemplate() {
+        renderer.render(new Object());
+    }
+
+    private String render(Object model) {
+        return renderer.render(model).replaceAll(">\\s+<", "><");
+    }
+
+    @BindTemplate("templates/server-renders-page.html")
+    public static class PageModel {
+        public String title = "Tasks";
+        public List<String> items = new ArrayList<>();
+        public boolean done;
+
+        public void complete() {
+            done = true;
+        }
+    }
+
+    @BindTemplate("templates/server-renders-custom-component.html")
+    public static class CustomComponentModel {
+        public String title = "Tasks";
+    }
+
+    @BindTemplate("templates/binds-class-and-style.html")
+    public static class StyleModel {
+        public boolean active = true;
+        public String width = "10px";
+    }
+}
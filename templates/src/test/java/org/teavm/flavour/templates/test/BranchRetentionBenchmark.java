@@ -0,0 +1,117 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.flavour.components.standard.BranchRetention;
+import org.teavm.flavour.templates.BindTemplate;
+import org.teavm.flavour.templates.Component;
+import org.teavm.flavour.templates.Templates;
+import org.teavm.jso.browser.Performance;
+import org.teavm.jso.browser.Window;
+import org.teavm.jso.dom.html.HTMLDocument;
+import org.teavm.jso.dom.html.HTMLElement;
+import org.teavm.junit.SkipJVM;
+import org.teavm.junit.TeaVMTestRunner;
+
+/**
+ * <p>Toggles a set of heavy <code>std:if</code> panels under every retention policy and reports
+ * how many DOM nodes are kept alive by hidden panels.
+ * The module's surefire configuration excludes <code>*Benchmark</code> classes from the regular test run,
+ * launch it explicitly with <code>-Dtest=BranchRetentionBenchmark</code>.</p>
+ */
+@RunWith(TeaVMTestRunner.class)
+@SkipJVM
+public class BranchRetentionBenchmark {
+    private static final int PANELS = 50;
+    private static final int ROWS = 20;
+    private static final int NODES_PER_PANEL = 1 + ROWS * 2;
+    private static final int ROUNDS = 200;
+    private HTMLDocument document;
+
+    public BranchRetentionBenchmark() {
+        document = Window.current().getDocument();
+    }
+
+    @Test
+    public void togglePanels() {
+        run(BranchRetention.Policy.KEEP_ALIVE);
+        run(BranchRetention.Policy.DESTROY_ON_HIDE);
+        run(BranchRetention.Policy.BOUNDED);
+    }
+
+    private void run(BranchRetention.Policy policy) {
+        BranchRetention.Policy oldPolicy = BranchRetention.getPolicy();
+        BranchRetention.setPolicy(policy);
+        BranchRetention.resetStatistics();
+        try {
+            HTMLElement element = document.createElement("div");
+            document.getBody().appendChild(element);
+            Model model = new Model();
+            Component component = Templates.bind(model, element);
+
+            Random random = new Random(0);
+            int maxRetainedNodes = 0;
+            double start = Performance.now();
+            for (int i = 0; i < ROUNDS; ++i) {
+                for (PanelModel panel : model.panels) {
+                    panel.visible = random.nextInt(4) == 0;
+                }
+                Templates.update();
+                maxRetainedNodes = Math.max(maxRetainedNodes,
+                        BranchRetention.getRetainedBranchCount() * NODES_PER_PANEL);
+            }
+            double time = Performance.now() - start;
+
+            System.out.println("std:if toggling (" + PANELS + " panels, " + ROUNDS + " rounds), " + policy + ": "
+                    + Math.round(time * 100) / 100.0 + " ms, "
+                    + element.getElementsByTagName("*").getLength() + " attached elements, "
+                    + BranchRetention.getRetainedBranchCount() * NODES_PER_PANEL + " retained nodes (max "
+                    + maxRetainedNodes + "), " + BranchRetention.getEvictedBranchCount() + " evictions");
+            component.destroy();
+            element.delete();
+        } finally {
+            BranchRetention.setPolicy(oldPolicy);
+            BranchRetention.resetStatistics();
+        }
+    }
+
+    @BindTemplate("templates/toggles-panels.html")
+    static class Model {
+        public List<PanelModel> panels = new ArrayList<>();
+
+        Model() {
+            for (int i = 0; i < PANELS; ++i) {
+                panels.add(new PanelModel());
+            }
+        }
+    }
+
+    public static class PanelModel {
+        public boolean visible;
+        public List<String> rows = new ArrayList<>();
+
+        PanelModel() {
+            for (int i = 0; i < ROWS; ++i) {
+                rows.add("row " + i);
+            }
+        }
+    }
+}
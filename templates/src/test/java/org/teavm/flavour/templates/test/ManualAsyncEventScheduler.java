@@ -0,0 +1,81 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates.test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import org.teavm.flavour.components.events.AsyncEventScheduler;
+
+class ManualAsyncEventScheduler implements AsyncEventScheduler {
+    private long time;
+    private int lastTimerId;
+    private List<Timer> timers = new ArrayList<>();
+    private Deque<Runnable> handlers = new ArrayDeque<>();
+
+    @Override
+    public int setTimeout(Runnable action, int delay) {
+        Timer timer = new Timer();
+        timer.id = lastTimerId++;
+        timer.time = time + delay;
+        timer.action = action;
+        timers.add(timer);
+        return timer.id;
+    }
+
+    @Override
+    public void clearTimeout(int timerId) {
+        timers.removeIf(timer -> timer.id == timerId);
+    }
+
+    @Override
+    public void submit(Runnable handler) {
+        handlers.add(handler);
+    }
+
+    void flush() {
+        while (!handlers.isEmpty()) {
+            handlers.remove().run();
+        }
+    }
+
+    void advance(int millis) {
+        long target = time + millis;
+        while (true) {
+            flush();
+            Timer next = null;
+            for (Timer timer : timers) {
+                if (timer.time <= target && (next == null || timer.time < next.time)) {
+                    next = timer;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            timers.remove(next);
+            time = next.time;
+            next.action.run();
+        }
+        time = target;
+    }
+
+    private static class Timer {
+        int id;
+        long time;
+        Runnable action;
+    }
+}
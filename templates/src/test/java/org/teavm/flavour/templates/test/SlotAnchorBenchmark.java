@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates.test;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.flavour.templates.NodeHolder;
+import org.teavm.flavour.templates.Slot;
+import org.teavm.jso.browser.Performance;
+import org.teavm.jso.browser.Window;
+import org.teavm.jso.dom.html.HTMLDocument;
+import org.teavm.jso.dom.html.HTMLElement;
+import org.teavm.junit.SkipJVM;
+import org.teavm.junit.TeaVMTestRunner;
+
+/**
+ * <p>Measures insertion into deeply nested slots with and without anchor nodes, together with
+ * the number of DOM nodes each mode produces.
+ * The module's surefire configuration excludes <code>*Benchmark</code> classes from the regular test run,
+ * launch it explicitly with <code>-Dtest=SlotAnchorBenchmark</code>.</p>
+ */
+@RunWith(TeaVMTestRunner.class)
+@SkipJVM
+public class SlotAnchorBenchmark {
+    private static final int DEPTH = 20;
+    private static final int EMPTY_SIBLINGS = 50;
+    private static final int INSERTIONS = 1000;
+    private HTMLDocument document;
+
+    public SlotAnchorBenchmark() {
+        document = Window.current().getDocument();
+    }
+
+    @Test
+    public void nestedAppend() {
+        run(false);
+        run(true);
+    }
+
+    private void run(boolean anchors) {
+        boolean wasEnabled = Slot.isAnchorsEnabled();
+        Slot.setAnchorsEnabled(anchors);
+        try {
+            HTMLElement element = document.createElement("div");
+            document.getBody().appendChild(element);
+            Slot root = Slot.root(element);
+
+            Slot deepest = root;
+            for (int i = 0; i < DEPTH; ++i) {
+                Slot child = Slot.create();
+                Slot trailing = Slot.create();
+                for (int j = 0; j < EMPTY_SIBLINGS; ++j) {
+                    trailing.append(Slot.create());
+                }
+                trailing.append(new NodeHolder(document.createElement("span")));
+                deepest.append(child);
+                deepest.append(trailing);
+                deepest = child;
+            }
+
+            double start = Performance.now();
+            for (int i = 0; i < INSERTIONS; ++i) {
+                deepest.append(new NodeHolder(document.createElement("div")));
+            }
+            double time = Performance.now() - start;
+
+            System.out.println("slot append (depth " + DEPTH + ", " + INSERTIONS + " nodes), anchors "
+                    + (anchors ? "on" : "off") + ": " + Math.round(time * 100) / 100.0 + " ms, "
+                    + element.getChildNodes().getLength() + " DOM nodes");
+            element.delete();
+        } finally {
+            Slot.setAnchorsEnabled(wasEnabled);
+        }
+    }
+}
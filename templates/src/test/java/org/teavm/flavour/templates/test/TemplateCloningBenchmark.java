@@ -0,0 +1,90 @@
+/*
+ *  Copyright 2015 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.flavour.templates.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.flavour.templates.BindTemplate;
+import org.teavm.flavour.templates.Component;
+import org.teavm.flavour.templates.DomBuilder;
+import org.teavm.flavour.templates.Templates;
+import org.teavm.jso.browser.Performance;
+import org.teavm.jso.browser.Window;
+import org.teavm.jso.dom.html.HTMLDocument;
+import org.teavm.jso.dom.html.HTMLElement;
+import org.teavm.junit.SkipJVM;
+import org.teavm.junit.TeaVMTestRunner;
+
+/**
+ * <p>Compares building <code>std:foreach</code> rows with bindings from cloned skeletons against building them
+ * node by node. The module's surefire configuration excludes <code>*Benchmark</code> classes from the regular
+ * test run, launch it explicitly with <code>-Dtest=TemplateCloningBenchmark</code>.</p>
+ */
+@RunWith(TeaVMTestRunner.class)
+@SkipJVM
+public class TemplateCloningBenchmark {
+    private static final int ROWS = 2000;
+    private static final int RUNS = 10;
+    private HTMLDocument document;
+
+    public TemplateCloningBenchmark() {
+        document = Window.current().getDocument();
+    }
+
+    @Test
+    public void buildRows() {
+        run(false);
+        run(true);
+        run(false);
+        run(true);
+    }
+
+    private void run(boolean cloning) {
+        boolean wasCloning = DomBuilder.isCloningEnabled();
+        DomBuilder.setCloningEnabled(cloning);
+        try {
+            Model model = new Model();
+            double time = 0;
+            for (int i = 0; i < RUNS; ++i) {
+                HTMLElement element = document.createElement("div");
+                document.getBody().appendChild(element);
+                double start = Performance.now();
+                Component component = Templates.bind(model, element);
+                time += Performance.now() - start;
+                component.destroy();
+                element.delete();
+            }
+
+            System.out.println("building " + ROWS + " rows, skeleton cloning " + (cloning ? "on" : "off")
+                    + ": " + Math.round(time / RUNS * 100) / 100.0 + " ms");
+        } finally {
+            DomBuilder.setCloningEnabled(wasCloning);
+        }
+    }
+
+    @BindTemplate("templates/first-render.html")
+    static class Model {
+        public List<String> rows = new ArrayList<>();
+
+        Model() {
+            for (int i = 0; i < ROWS; ++i) {
+                rows.add(String.valueOf(i));
+            }
+        }
+    }
+}
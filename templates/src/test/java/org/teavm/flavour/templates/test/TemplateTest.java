@@ -16,14 +16,35 @@
 package org.teavm.flavour.templates.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.teavm.flavour.components.events.BaseAsyncEventBinder;
+import org.teavm.flavour.components.events.EventDelegation;
+import org.teavm.flavour.components.html.TextComponent;
+import org.teavm.flavour.components.standard.BranchRetention;
+import org.teavm.flavour.expr.Memo;
 import org.teavm.flavour.templates.BindTemplate;
 import org.teavm.flavour.templates.Component;
+import org.teavm.flavour.templates.DomBuilder;
+import org.teavm.flavour.templates.DomWriteQueue;
+import org.teavm.flavour.templates.Pure;
+import org.teavm.flavour.templates.RenderStatistics;
+import org.teavm.flavour.templates.Signal;
 import org.teavm.flavour.templates.Templates;
+import org.teavm.flavour.templates.UpdateScheduling;
+import org.teavm.jso.JSBody;
+import org.teavm.jso.browser.Performance;
 import org.teavm.jso.browser.Window;
 import org.teavm.jso.dom.html.HTMLDocument;
 import org.teavm.jso.dom.html.HTMLElement;
+import org.teavm.jso.dom.html.HTMLInputElement;
+import org.teavm.jso.dom.xml.Node;
 import org.teavm.junit.SkipJVM;
 import org.teavm.junit.TeaVMTestRunner;
 
@@ -182,6 +203,24 @@ public class TemplateTest {
         }
     }
 
+    @Test
+    public void bindsPrimitiveText() {
+        ModelForPrimitiveText model = new ModelForPrimitiveText();
+        Component component = Templates.bind(model, root);
+        HTMLElement elem = document.getElementById("value");
+        assertEquals("0", elem.getTextContent());
+
+        model.count = 23;
+        component.render();
+        assertEquals("23", elem.getTextContent());
+        component.destroy();
+    }
+
+    @BindTemplate("templates/binds-primitive-text.html")
+    static class ModelForPrimitiveText {
+        public int count;
+    }
+
     @Test
     public void instanceOfWorks() {
         InstanceOf model = new InstanceOf();
@@ -197,4 +236,860 @@ public class TemplateTest {
         component.render();
         assertEquals("true", element.getAttribute("class"));
     }
+
+    @Test
+    public void scopedUpdateRendersOnlyInvalidatedComponents() {
+        HTMLElement otherRoot = document.createElement("div");
+        document.getBody().appendChild(otherRoot);
+        ModelForLambdaToAttribute first = new ModelForLambdaToAttribute();
+        ModelForLambdaToAttribute second = new ModelForLambdaToAttribute();
+        first.property = "a";
+        second.property = "b";
+        Component firstComponent = Templates.bind(first, root);
+        Component secondComponent = Templates.bind(second, otherRoot);
+        HTMLElement firstElem = root.getElementsByTagName("div").get(0);
+        HTMLElement secondElem = otherRoot.getElementsByTagName("div").get(0);
+
+        Templates.setScopedUpdates(true);
+        try {
+            first.property = "foo";
+            second.property = "bar";
+            firstComponent.invalidate();
+            Templates.update();
+            assertEquals("foo", firstElem.getAttribute("class"));
+            assertEquals("b", secondElem.getAttribute("class"));
+
+            Templates.update(secondComponent);
+            assertEquals("bar", secondElem.getAttribute("class"));
+
+            first.property = "baz";
+            Templates.update();
+            assertEquals("baz", firstElem.getAttribute("class"));
+        } finally {
+            Templates.setScopedUpdates(false);
+            firstComponent.destroy();
+            secondComponent.destroy();
+        }
+    }
+
+    @Test
+    public void scheduledUpdatesAreCoalesced() {
+        ModelForLambdaToAttribute model = new ModelForLambdaToAttribute();
+        model.property = "a";
+        Component component = Templates.bind(model, root);
+        HTMLElement elem = root.getElementsByTagName("div").get(0);
+
+        Templates.setUpdateScheduling(UpdateScheduling.ANIMATION_FRAME);
+        Templates.resetUpdateCounters();
+        try {
+            model.property = "foo";
+            Templates.update();
+            model.property = "bar";
+            Templates.update();
+            assertEquals("a", elem.getAttribute("class"));
+
+            Templates.flush();
+            assertEquals("bar", elem.getAttribute("class"));
+            assertEquals(2, Templates.getRequestedUpdateCount());
+            assertEquals(1, Templates.getPerformedUpdateCount());
+        } finally {
+            Templates.setUpdateScheduling(UpdateScheduling.IMMEDIATE);
+            component.destroy();
+        }
+    }
+
+    @Test
+    public void recordsRenderStatistics() {
+        ModelForPrimitiveText model = new ModelForPrimitiveText();
+        Templates.setRenderInstrumentationEnabled(true);
+        try {
+            Component component = Templates.bind(model, root);
+            Templates.resetRenderStatistics();
+
+            component.render();
+            model.count = 1;
+            component.render();
+
+            RenderStatistics statistics = Templates.getRenderStatisticsForClass(TextComponent.class);
+            assertEquals(2, statistics.getRenderCount());
+            assertEquals(1, statistics.getNoOpRenderCount());
+            assertEquals(1, Templates.getRenderStatisticsByLocation().size());
+            assertEquals("templates/binds-primitive-text.html:1",
+                    Templates.getRenderStatisticsByLocation().iterator().next().getName());
+            component.destroy();
+        } finally {
+            Templates.setRenderInstrumentationEnabled(false);
+            Templates.resetRenderStatistics();
+        }
+    }
+
+    @Test
+    public void reactiveModeRendersOnSignalWrite() {
+        Templates.setReactive(true);
+        ModelForSignal model = new ModelForSignal();
+        Component component = Templates.bind(model, root);
+        try {
+            HTMLElement elem = document.getElementById("value-copy");
+            assertEquals("a", elem.getAttribute("class"));
+
+            model.property.set("foo");
+            Templates.flush();
+            assertEquals("foo", elem.getAttribute("class"));
+
+            model.property.set("bar");
+            model.property.set("baz");
+            Templates.flush();
+            assertEquals("baz", elem.getAttribute("class"));
+        } finally {
+            Templates.setReactive(false);
+            component.destroy();
+        }
+    }
+
+    @Test
+    public void rendersNonReactiveRootsInReactiveMode() {
+        ModelForLambdaToAttribute plainModel = new ModelForLambdaToAttribute();
+        plainModel.property = "a";
+        Component plainComponent = Templates.bind(plainModel, root);
+        HTMLElement plainElem = document.getElementById("value-copy");
+        plainElem.removeAttribute("id");
+
+        HTMLElement reactiveRoot = document.createElement("div");
+        document.getBody().appendChild(reactiveRoot);
+        Templates.setReactive(true);
+        ModelForSignal reactiveModel = new ModelForSignal();
+        Component reactiveComponent = Templates.bind(reactiveModel, reactiveRoot);
+        Templates.setReactive(false);
+        try {
+            HTMLElement reactiveElem = document.getElementById("value-copy");
+            Templates.setReactive(true);
+
+            plainModel.property = "b";
+            Templates.update();
+            assertEquals("b", plainElem.getAttribute("class"));
+
+            reactiveModel.property.set("c");
+            Templates.flush();
+            assertEquals("c", reactiveElem.getAttribute("class"));
+        } finally {
+            Templates.setReactive(false);
+            reactiveComponent.destroy();
+            plainComponent.destroy();
+            reactiveRoot.delete();
+        }
+    }
+
+    @BindTemplate("templates/binds-signal-to-attribute.html")
+    static class ModelForSignal {
+        public Signal<String> property = new Signal<>("a");
+    }
+
+    @Test
+    public void sharesPureExpressionsWithinRender() {
+        ModelForPureExpressions model = new ModelForPureExpressions();
+        model.property = "foo";
+        Component component = Templates.bind(model, root);
+        HTMLElement elem = document.getElementById("value-copy");
+        HTMLElement span = root.getElementsByTagName("span").get(0);
+        assertEquals("foo", elem.getAttribute("class"));
+        assertEquals("foo", span.getAttribute("title"));
+        assertEquals(1, model.calls);
+
+        model.property = "bar";
+        component.render();
+        assertEquals("bar", elem.getAttribute("class"));
+        assertEquals("bar", span.getAttribute("title"));
+        assertEquals(2, model.calls);
+        component.destroy();
+    }
+
+    @BindTemplate("templates/shares-pure-expressions.html")
+    static class ModelForPureExpressions {
+        public String property;
+        public int calls;
+
+        @Pure
+        public String describe() {
+            ++calls;
+            return property;
+        }
+    }
+
+    @Test
+    public void memoizesGettersAcrossRenders() {
+        ModelForMemo model = new ModelForMemo();
+        Component component = Templates.bind(model, root);
+        HTMLElement span = root.getElementsByTagName("span").get(0);
+        assertEquals("a!", span.getAttribute("title"));
+        assertEquals(1, model.calls);
+
+        component.render();
+        assertEquals(1, model.calls);
+
+        model.items = "b";
+        component.render();
+        assertEquals("b!", span.getAttribute("title"));
+        assertEquals(2, model.calls);
+        component.destroy();
+    }
+
+    @BindTemplate("templates/memoizes-getters.html")
+    static class ModelForMemo {
+        public String items = "a";
+        public int calls;
+
+        @Memo(dependsOn = "items")
+        public String getTotal() {
+            ++calls;
+            return items + "!";
+        }
+    }
+
+    @Test
+    public void clonesTemplateSkeletonWithHoles() {
+        String expected = "<div class=\"row\" title=\"static\"><span class=\"label\">Name: </span><b>x</b>"
+                + "<i data-name=\"x\">before x after</i><em>flag</em><p>fixed <u>text</u></p></div>";
+        String updated = "<div class=\"row\" title=\"static\"><span class=\"label\">Name: </span><b>y</b>"
+                + "<i data-name=\"y\">before y after</i><p>fixed <u>text</u></p></div>";
+        assertEquals(expected + updated, renderSkeleton(true));
+        assertEquals("Cloned and node-by-node builds match", renderSkeleton(false), renderSkeleton(true));
+    }
+
+    private String renderSkeleton(boolean cloning) {
+        boolean wasCloning = DomBuilder.isCloningEnabled();
+        DomBuilder.setCloningEnabled(cloning);
+        try {
+            ModelForSkeleton model = new ModelForSkeleton();
+            Component component = Templates.bind(model, root);
+            component.render();
+            String html = root.getInnerHTML();
+            model.name = "y";
+            model.flag = false;
+            component.render();
+            html += root.getInnerHTML();
+            component.destroy();
+            return html;
+        } finally {
+            DomBuilder.setCloningEnabled(wasCloning);
+        }
+    }
+
+    @Test
+    public void hydratesTemplateSkeletonWithHoles() {
+        root.setInnerHTML("<div class=\"row\" title=\"static\"><span class=\"label\">Name: </span>"
+                + "<b><!---->x<!----></b><i data-name=\"x\">before <!---->x<!----> after</i>"
+                + "<!----><em>flag</em><!----><p>fixed <u>text</u></p></div>");
+        HTMLElement label = root.getElementsByTagName("span").get(0);
+        HTMLElement fixed = root.getElementsByTagName("p").get(0);
+
+        Component component = Templates.hydrate(new ModelForSkeleton(), root);
+        assertEquals(0, Templates.getHydrationMismatchCount());
+        assertSame(label, root.getElementsByTagName("span").get(0));
+        assertSame(fixed, root.getElementsByTagName("p").get(0));
+        assertEquals("<div class=\"row\" title=\"static\"><span class=\"label\">Name: </span><b>x</b>"
+                + "<i data-name=\"x\">before x after</i><em>flag</em><p>fixed <u>text</u></p></div>",
+                root.getInnerHTML());
+        component.destroy();
+    }
+
+    @BindTemplate("templates/clones-template-skeleton.html")
+    static class ModelForSkeleton {
+        public String name = "x";
+        public boolean flag = true;
+    }
+
+    @Test
+    public void hydratesPrerenderedMarkup() {
+        root.setInnerHTML("<div id=\"hydrated-title\" class=\"main\"><!---->Hello<!----></div>"
+                + "<!----><span class=\"hydrated-item\"><!---->a<!----></span>"
+                + "<span class=\"hydrated-item\"><!---->b<!----></span><!---->");
+        HTMLElement title = document.getElementById("hydrated-title");
+        HTMLElement firstItem = root.getElementsByTagName("span").get(0);
+
+        ModelForHydration model = new ModelForHydration();
+        Component component = Templates.hydrate(model, root);
+        assertSame(title, document.getElementById("hydrated-title"));
+        assertSame(firstItem, root.getElementsByTagName("span").get(0));
+        assertEquals(0, Templates.getHydrationMismatchCount());
+        assertEquals(3, root.getChildNodes().getLength());
+        assertEquals("Hello", title.getTextContent());
+
+        model.title = "Bye";
+        model.items.add("c");
+        component.render();
+        assertEquals("Bye", title.getTextContent());
+        assertEquals(4, root.getChildNodes().getLength());
+        assertEquals("c", root.getElementsByTagName("span").get(2).getTextContent());
+        component.destroy();
+    }
+
+    @Test
+    public void rebuildsMismatchingMarkup() {
+        root.setInnerHTML("<div id=\"hydrated-title\" class=\"main\"><!---->Hello<!----></div>"
+                + "<!----><p>a</p><!---->");
+
+        ModelForHydration model = new ModelForHydration();
+        Component component = Templates.hydrate(model, root);
+        assertTrue(Templates.getHydrationMismatchCount() > 0);
+        assertEquals(0, root.getElementsByTagName("p").getLength());
+        assertEquals(2, root.getElementsByTagName("span").getLength());
+        assertEquals("b", root.getElementsByTagName("span").get(1).getTextContent());
+        assertEquals(3, root.getChildNodes().getLength());
+        component.destroy();
+    }
+
+    @Test
+    public void removesLeftoverAttributesWhenHydrating() {
+        root.setInnerHTML("<div id=\"hydrated-title\" class=\"main\" title=\"stale\" data-state=\"old\">"
+                + "<!---->Hello<!----></div><!----><span class=\"hydrated-item\" hidden><!---->a<!----></span>"
+                + "<span class=\"hydrated-item\"><!---->b<!----></span><!---->");
+        HTMLElement title = document.getElementById("hydrated-title");
+        HTMLElement firstItem = root.getElementsByTagName("span").get(0);
+
+        ModelForHydration model = new ModelForHydration();
+        model.type = "primary";
+        Component component = Templates.hydrate(model, root);
+        assertSame(title, document.getElementById("hydrated-title"));
+        assertSame(firstItem, root.getElementsByTagName("span").get(0));
+        assertEquals("primary", title.getAttribute("class"));
+        assertNull(title.getAttribute("title"));
+        assertNull(title.getAttribute("data-state"));
+        assertNull(firstItem.getAttribute("hidden"));
+        assertEquals("hydrated-item", firstItem.getAttribute("class"));
+        component.destroy();
+    }
+
+    @BindTemplate("templates/hydrates-markup.html")
+    static class ModelForHydration {
+        public String type = "main";
+        public String title = "Hello";
+        public List<String> items = new ArrayList<>(Arrays.asList("a", "b"));
+    }
+
+    @Test
+    public void delegatesEvents() {
+        EventDelegation.setEnabled(true);
+        try {
+            ModelForEventDelegation model = new ModelForEventDelegation();
+            Component component = Templates.bind(model, root);
+            click(root.getElementsByTagName("span").get(1));
+            assertEquals("b", model.lastClicked);
+
+            HTMLElement button = root.getElementsByTagName("button").get(0);
+            click(button);
+            assertEquals("a", model.lastClicked);
+
+            component.destroy();
+            model.lastClicked = null;
+            root.appendChild(button);
+            click(button);
+            assertNull(model.lastClicked);
+        } finally {
+            EventDelegation.setEnabled(false);
+        }
+    }
+
+    @Test
+    public void destroyedDelegatedBinderStopsHandlingEvents() {
+        EventDelegation.setEnabled(true);
+        try {
+            ModelForDelegatedRemoval model = new ModelForDelegatedRemoval();
+            Component component = Templates.bind(model, root);
+            HTMLElement removedButton = root.getElementsByTagName("button").get(0);
+
+            model.items.remove(0);
+            component.render();
+            assertEquals(1, root.getElementsByTagName("button").getLength());
+
+            root.appendChild(removedButton);
+            click(removedButton);
+            assertNull("Handler of destroyed binder not called", model.lastClicked);
+
+            click(root.getElementsByTagName("button").get(0));
+            assertEquals("Other delegated handlers still work", "b", model.lastClicked);
+            component.destroy();
+        } finally {
+            EventDelegation.setEnabled(false);
+        }
+    }
+
+    @BindTemplate("templates/delegates-events.html")
+    static class ModelForDelegatedRemoval {
+        public List<String> items = new ArrayList<>(Arrays.asList("a", "b"));
+        public String lastClicked;
+
+        public void clicked(String item) {
+            lastClicked = item;
+        }
+    }
+
+    @Test
+    public void delegatesNonBubblingEventsToTargetOnly() {
+        EventDelegation.setEnabled(true);
+        try {
+            ModelForDelegatedFocus model = new ModelForDelegatedFocus();
+            Component component = Templates.bind(model, root);
+            fire(root.getElementsByTagName("input").get(0), "focus");
+            assertEquals(Arrays.asList("inner"), model.focused);
+
+            fire(root.getElementsByTagName("div").get(0), "focus");
+            assertEquals(Arrays.asList("inner", "outer"), model.focused);
+            component.destroy();
+        } finally {
+            EventDelegation.setEnabled(false);
+        }
+    }
+
+    @BindTemplate("templates/delegates-focus.html")
+    static class ModelForDelegatedFocus {
+        public List<String> focused = new ArrayList<>();
+
+        public void focused(String name) {
+            focused.add(name);
+        }
+    }
+
+    @BindTemplate("templates/delegates-events.html")
+    static class ModelForEventDelegation {
+        public List<String> items = Arrays.asList("a", "b");
+        public String lastClicked;
+
+        public void clicked(String item) {
+            lastClicked = item;
+        }
+    }
+
+    @Test
+    public void debouncesAsyncEvents() {
+        int delay = BaseAsyncEventBinder.getDelay();
+        BaseAsyncEventBinder.setDelay(50);
+        ManualAsyncEventScheduler scheduler = new ManualAsyncEventScheduler();
+        BaseAsyncEventBinder.setScheduler(scheduler);
+        ModelForDebounce model = new ModelForDebounce();
+        Component component = Templates.bind(model, root);
+        try {
+            HTMLElement button = root.getElementsByTagName("button").get(0);
+            for (int i = 0; i < 3; ++i) {
+                click(button);
+                scheduler.advance(20);
+            }
+            assertEquals(0, model.clicks);
+
+            scheduler.advance(29);
+            assertEquals(0, model.clicks);
+
+            scheduler.advance(1);
+            assertEquals(1, model.clicks);
+
+            scheduler.advance(100);
+            assertEquals(1, model.clicks);
+        } finally {
+            component.destroy();
+            BaseAsyncEventBinder.setDelay(delay);
+            BaseAsyncEventBinder.setScheduler(null);
+        }
+    }
+
+    @BindTemplate("templates/debounces-events.html")
+    static class ModelForDebounce {
+        public int clicks;
+
+        public void clicked() {
+            ++clicks;
+        }
+    }
+
+    @Test
+    public void throttlesAsyncEvents() {
+        int delay = BaseAsyncEventBinder.getDelay();
+        BaseAsyncEventBinder.setDelay(50);
+        ManualAsyncEventScheduler scheduler = new ManualAsyncEventScheduler();
+        BaseAsyncEventBinder.setScheduler(scheduler);
+        ModelForThrottle model = new ModelForThrottle();
+        Component component = Templates.bind(model, root);
+        try {
+            HTMLElement button = root.getElementsByTagName("button").get(0);
+            for (int i = 0; i < 3; ++i) {
+                click(button);
+            }
+            scheduler.flush();
+            assertEquals("First event handled at once", 1, model.clicks);
+
+            scheduler.advance(49);
+            assertEquals(1, model.clicks);
+
+            scheduler.advance(1);
+            assertEquals("Last skipped event handled at the end of the period", 2, model.clicks);
+
+            scheduler.advance(100);
+            assertEquals(2, model.clicks);
+        } finally {
+            component.destroy();
+            BaseAsyncEventBinder.setDelay(delay);
+            BaseAsyncEventBinder.setScheduler(null);
+        }
+    }
+
+    @BindTemplate("templates/throttles-events.html")
+    static class ModelForThrottle {
+        public int clicks;
+
+        public void clicked() {
+            ++clicks;
+        }
+    }
+
+    @Test
+    public void handlesLatestAsyncEvents() {
+        ManualAsyncEventScheduler scheduler = new ManualAsyncEventScheduler();
+        BaseAsyncEventBinder.setScheduler(scheduler);
+        ModelForLatest model = new ModelForLatest();
+        Component component = Templates.bind(model, root);
+        try {
+            HTMLElement button = root.getElementsByTagName("button").get(0);
+            for (int i = 0; i < 3; ++i) {
+                click(button);
+            }
+            assertEquals(0, model.clicks);
+
+            scheduler.flush();
+            assertEquals("Events that came while running are superseded", 2, model.clicks);
+        } finally {
+            component.destroy();
+            BaseAsyncEventBinder.setScheduler(null);
+        }
+    }
+
+    @BindTemplate("templates/handles-latest-events.html")
+    static class ModelForLatest {
+        public int clicks;
+
+        public void clicked() {
+            ++clicks;
+        }
+    }
+
+    @Test
+    public void updatesModelLazily() {
+        ModelForLazyValue model = new ModelForLazyValue();
+        Component component = Templates.bind(model, root);
+        HTMLInputElement input = (HTMLInputElement) root.getElementsByTagName("input").get(0);
+        assertEquals("a", input.getValue());
+
+        input.setValue("b");
+        fire(input, "change");
+        assertEquals("a", model.text);
+
+        fire(input, "blur");
+        assertEquals("b", model.text);
+        component.destroy();
+    }
+
+    @BindTemplate("templates/bidir-value-lazy.html")
+    static class ModelForLazyValue {
+        public String text = "a";
+    }
+
+    @Test
+    public void updatesModelAfterInputSettles() {
+        int delay = BaseAsyncEventBinder.getDelay();
+        BaseAsyncEventBinder.setDelay(50);
+        ManualAsyncEventScheduler scheduler = new ManualAsyncEventScheduler();
+        BaseAsyncEventBinder.setScheduler(scheduler);
+        ModelForDebouncedValue model = new ModelForDebouncedValue();
+        Component component = Templates.bind(model, root);
+        try {
+            HTMLInputElement input = (HTMLInputElement) root.getElementsByTagName("input").get(0);
+            for (String text : new String[] { "b", "bc", "bcd" }) {
+                input.setValue(text);
+                fire(input, "input");
+                scheduler.advance(20);
+            }
+            assertEquals(0, model.writes);
+
+            scheduler.advance(30);
+            assertEquals("One write for inputs within the delay", 1, model.writes);
+            assertEquals("bcd", model.getText());
+
+            scheduler.advance(100);
+            assertEquals(1, model.writes);
+        } finally {
+            component.destroy();
+            BaseAsyncEventBinder.setDelay(delay);
+            BaseAsyncEventBinder.setScheduler(null);
+        }
+    }
+
+    @BindTemplate("templates/bidir-value-debounce.html")
+    static class ModelForDebouncedValue {
+        private String text = "a";
+        public int writes;
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+            ++writes;
+        }
+    }
+
+    @Test
+    public void batchesDomWrites() {
+        DomWriteQueue.setEnabled(true);
+        try {
+            ModelForBatchedWrites model = new ModelForBatchedWrites();
+            Component component = Templates.bind(model, root);
+            HTMLElement span = (HTMLElement) root.getElementsByTagName("span").get(0);
+            Node text = span.getFirstChild();
+            assertEquals("a", span.getAttribute("title"));
+            assertEquals("a", text.getNodeValue());
+
+            DomWriteQueue.resetStatistics();
+            model.title = "b";
+            Templates.update();
+            assertEquals("b", span.getAttribute("title"));
+            assertSame(text, span.getFirstChild());
+            assertEquals("b", text.getNodeValue());
+            assertEquals(2, DomWriteQueue.getAppliedWriteCount());
+
+            Templates.update();
+            assertEquals(2, DomWriteQueue.getAppliedWriteCount());
+            component.destroy();
+        } finally {
+            DomWriteQueue.setEnabled(false);
+        }
+    }
+
+    @Test
+    public void coalescesDomWritesToSameTarget() {
+        DomWriteQueue.setEnabled(true);
+        DomWriteQueue.resetStatistics();
+        try {
+            ModelForCoalescedWrites model = new ModelForCoalescedWrites();
+            Component component = Templates.bind(model, root);
+            HTMLInputElement input = (HTMLInputElement) root.getElementsByTagName("input").get(0);
+            assertEquals(1, DomWriteQueue.getCoalescedWriteCount());
+            assertEquals(1, DomWriteQueue.getAppliedWriteCount());
+            assertTrue(input.getValue().equals("a") || input.getValue().equals("b"));
+            component.destroy();
+        } finally {
+            DomWriteQueue.setEnabled(false);
+        }
+    }
+
+    @BindTemplate("templates/coalesces-dom-writes.html")
+    static class ModelForCoalescedWrites {
+        public String first = "a";
+        public String second = "b";
+    }
+
+    @BindTemplate("templates/batches-dom-writes.html")
+    static class ModelForBatchedWrites {
+        public String title = "a";
+    }
+
+    @Test
+    public void evictsHiddenBranches() {
+        BranchRetention.setPolicy(BranchRetention.Policy.BOUNDED);
+        BranchRetention.setCapacity(2);
+        BranchRetention.resetStatistics();
+        int initialCount = BranchRetention.getRetainedBranchCount();
+        try {
+            ModelForRetainedBranches model = new ModelForRetainedBranches();
+            Component component = Templates.bind(model, root);
+            HTMLElement lastPanel = (HTMLElement) root.getElementsByTagName("div").get(3);
+
+            for (Panel panel : model.panels) {
+                panel.visible = false;
+            }
+            Templates.update();
+            assertEquals(0, root.getElementsByTagName("div").getLength());
+            assertEquals(initialCount + 2, BranchRetention.getRetainedBranchCount());
+            assertEquals(2, BranchRetention.getEvictedBranchCount());
+
+            model.panels.get(3).visible = true;
+            Templates.update();
+            assertSame(lastPanel, root.getElementsByTagName("div").get(0));
+            assertEquals(initialCount + 1, BranchRetention.getRetainedBranchCount());
+
+            component.destroy();
+            assertEquals(initialCount, BranchRetention.getRetainedBranchCount());
+        } finally {
+            BranchRetention.setPolicy(BranchRetention.Policy.DEFAULT);
+            BranchRetention.setCapacity(16);
+            BranchRetention.resetStatistics();
+        }
+    }
+
+    @Test
+    public void retainsHiddenBranchesPerPolicy() {
+        retainHiddenBranches(BranchRetention.Policy.DEFAULT, true);
+        retainHiddenBranches(BranchRetention.Policy.KEEP_ALIVE, true);
+        retainHiddenBranches(BranchRetention.Policy.DESTROY_ON_HIDE, false);
+    }
+
+    private void retainHiddenBranches(BranchRetention.Policy policy, boolean retained) {
+        BranchRetention.setPolicy(policy);
+        int initialCount = BranchRetention.getRetainedBranchCount();
+        try {
+            ModelForRetainedBranches model = new ModelForRetainedBranches();
+            Component component = Templates.bind(model, root);
+            HTMLElement firstPanel = (HTMLElement) root.getElementsByTagName("div").get(0);
+
+            for (Panel panel : model.panels) {
+                panel.visible = false;
+            }
+            Templates.update();
+            assertEquals(initialCount + (retained ? 4 : 0), BranchRetention.getRetainedBranchCount());
+
+            model.panels.get(0).visible = true;
+            Templates.update();
+            assertEquals(initialCount + (retained ? 3 : 0), BranchRetention.getRetainedBranchCount());
+            assertEquals(retained, firstPanel == root.getElementsByTagName("div").get(0));
+
+            component.destroy();
+            assertEquals(initialCount, BranchRetention.getRetainedBranchCount());
+        } finally {
+            BranchRetention.setPolicy(BranchRetention.Policy.DEFAULT);
+        }
+    }
+
+    @BindTemplate("templates/retains-branches.html")
+    static class ModelForRetainedBranches {
+        public List<Panel> panels = Arrays.asList(new Panel(), new Panel(), new Panel(), new Panel());
+    }
+
+    public static class Panel {
+        public boolean visible = true;
+    }
+
+    @Test
+    public void slicesRenderingAcrossFrames() {
+        Templates.setTimeSlicing(true);
+        Templates.setFrameBudget(1);
+        try {
+            ModelForTimeSlicing model = new ModelForTimeSlicing();
+            Component component = Templates.bind(model, root);
+            assertEquals("c0", root.getElementsByTagName("span").get(2).getTextContent());
+
+            model.suffix = "1";
+            Templates.update();
+            assertEquals("a1", root.getElementsByTagName("span").get(0).getTextContent());
+            assertEquals("c0", root.getElementsByTagName("span").get(2).getTextContent());
+            assertTrue(Templates.hasDeferredRendering());
+
+            Templates.finishDeferredRendering();
+            assertEquals("b1", root.getElementsByTagName("span").get(1).getTextContent());
+            assertEquals("c1", root.getElementsByTagName("span").get(2).getTextContent());
+            component.destroy();
+        } finally {
+            Templates.setTimeSlicing(false);
+            Templates.setFrameBudget(8);
+        }
+    }
+
+    @BindTemplate("templates/slices-rendering.html")
+    static class ModelForTimeSlicing {
+        public List<String> items = Arrays.asList("a", "b", "c");
+        public String suffix = "0";
+
+        public String label(String item) {
+            double start = Performance.now();
+            while (Performance.now() - start < 2) {
+                // Make every item exceed the frame budget
+            }
+            return item + suffix;
+        }
+    }
+
+    @Test
+    public void rendersDetached() {
+        ModelForDetachedRendering model = new ModelForDetachedRendering(root);
+        Component component = Templates.bind(model, root);
+        assertEquals("probe: attached", root.getTextContent());
+        component.destroy();
+
+        Templates.setDetachedRendering(true);
+        try {
+            component = Templates.bind(model, root);
+            assertEquals("probe: detached", root.getTextContent());
+            component.destroy();
+        } finally {
+            Templates.setDetachedRendering(false);
+        }
+    }
+
+    @BindTemplate("templates/renders-detached.html")
+    static class ModelForDetachedRendering {
+        private HTMLElement container;
+
+        ModelForDetachedRendering(HTMLElement container) {
+            this.container = container;
+        }
+
+        public String probe() {
+            return container.hasChildNodes() ? "attached" : "detached";
+        }
+    }
+
+    @Test
+    public void lazyRendersContent() {
+        ModelForLazy model = new ModelForLazy();
+        Component component = Templates.bind(model, root);
+        HTMLElement container = (HTMLElement) root.getElementsByTagName("div").get(0);
+        if (!isIntersectionObserverSupported()) {
+            // Without IntersectionObserver the content is rendered right away
+            assertEquals("a", container.getTextContent());
+            model.text = "b";
+            Templates.update();
+            assertEquals("b", container.getTextContent());
+        } else {
+            assertEquals(0, container.getChildNodes().getLength());
+        }
+        component.destroy();
+    }
+
+    @BindTemplate("templates/lazy-works.html")
+    static class ModelForLazy {
+        public String text = "a";
+    }
+
+    @Test
+    public void bindsSingleClassAndStyle() {
+        ModelForClassAndStyle model = new ModelForClassAndStyle();
+        Component component = Templates.bind(model, root);
+        HTMLElement element = (HTMLElement) root.getElementsByTagName("div").get(0);
+        assertEquals("box active", element.getClassName());
+        assertEquals("10px", element.getStyle().getPropertyValue("width"));
+
+        model.active = false;
+        model.width = null;
+        Templates.update();
+        assertEquals("box done", element.getClassName());
+        assertEquals("", element.getStyle().getPropertyValue("width"));
+        component.destroy();
+    }
+
+    @BindTemplate("templates/binds-class-and-style.html")
+    static class ModelForClassAndStyle {
+        public boolean active = true;
+        public String width = "10px";
+    }
+
+    @JSBody(script = "return typeof IntersectionObserver !== 'undefined';")
+    private static native boolean isIntersectionObserverSupported();
+
+    @JSBody(params = "element", script = ""
+            + "var event = document.createEvent('MouseEvents');"
+            + "event.initEvent('click', true, true);"
+            + "element.dispatchEvent(event);")
+    private static native void click(HTMLElement element);
+
+    @JSBody(params = { "element", "type" }, script = ""
+            + "var event = document.createEvent('HTMLEvents');"
+            + "event.initEvent(type, false, true);"
+            + "element.dispatchEvent(event);")
+    private static native void fire(HTMLElement element, String type);
 }